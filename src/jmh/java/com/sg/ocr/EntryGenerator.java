@@ -0,0 +1,113 @@
+package com.sg.ocr;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import com.sg.ocr.fsm.FSMBuilder;
+
+/*
+ * Generates synthetic entries for benchmarks. Valid entries pass the checksum, error entries
+ * fail it, and illegal entries have a segment missing from one of the digits.
+ */
+class EntryGenerator {
+	enum Kind { VALID, ILLEGAL, ERROR }
+
+	private static final int DIGIT_COUNT = 9;
+	//three lines of each digit
+	private static final String[][] GLYPHS = new String[10][];
+
+	static {
+		for(int i = 0; i < 10; i++) {
+			GLYPHS[i] = FSMBuilder.getFormattedSegments(i).substring(System.lineSeparator().length())
+					.split(System.lineSeparator());
+		}
+	}
+
+	private final Random random;
+	private final SevenSegmentScanner scanner = new SevenSegmentScanner(DIGIT_COUNT);
+
+	EntryGenerator(long seed) {
+		random = new Random(seed);
+	}
+
+	/*
+	 * Returns a random account number, with a valid checksum unless an error number is requested.
+	 */
+	String accountNumber(Kind kind) {
+		while(true) {
+			StringBuilder sb = new StringBuilder();
+			for(int i = 0; i < DIGIT_COUNT; i++) {
+				sb.append(random.nextInt(10));
+			}
+			if(scanner.checksum(sb.toString()) == (kind != Kind.ERROR)) {
+				return sb.toString();
+			}
+		}
+	}
+
+	/*
+	 * Returns the three lines of a random entry of the given kind.
+	 */
+	List<String> entry(Kind kind) {
+		String accNum = accountNumber(kind);
+		StringBuilder[] lines = {new StringBuilder(), new StringBuilder(), new StringBuilder()};
+		for(int i = 0; i < DIGIT_COUNT; i++) {
+			String[] glyph = GLYPHS[accNum.charAt(i) - '0'];
+			for(int j = 0; j < 3; j++) {
+				lines[j].append(glyph[j]);
+			}
+		}
+		if(kind == Kind.ILLEGAL) {
+			removeSegment(lines, random.nextInt(DIGIT_COUNT));
+		}
+		return Arrays.asList(lines[0].toString(), lines[1].toString(), lines[2].toString());
+	}
+
+	/*
+	 * Blanks a segment of the digit at the given position so it no longer reads as a digit.
+	 */
+	private void removeSegment(StringBuilder[] lines, int digitPos) {
+		while(true) {
+			int line = random.nextInt(3);
+			int pos = digitPos * 3 + random.nextInt(3);
+			char segment = lines[line].charAt(pos);
+			if(segment != ' ') {
+				lines[line].setCharAt(pos, ' ');
+				if(scanner.scanLines(Arrays.asList(lines[0].toString(), lines[1].toString(), lines[2].toString()))
+						.getAccountNumber().charAt(digitPos) == '?') {
+					return;
+				}
+				lines[line].setCharAt(pos, segment);
+			}
+		}
+	}
+
+	/*
+	 * Picks the kind of an entry, illegal and error entries appear with the given ratios.
+	 */
+	Kind nextKind(double illegalRatio, double errorRatio) {
+		double r = random.nextDouble();
+		return r < illegalRatio ? Kind.ILLEGAL : r < illegalRatio + errorRatio ? Kind.ERROR : Kind.VALID;
+	}
+
+	/*
+	 * Writes a file of the given number of entries.
+	 */
+	void write(Path path, int entries, double illegalRatio, double errorRatio) throws IOException {
+		try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.ISO_8859_1)) {
+			for(int i = 0; i < entries; i++) {
+				for(String line : entry(nextKind(illegalRatio, errorRatio))) {
+					writer.write(line);
+					writer.newLine();
+				}
+				writer.newLine();
+			}
+		}
+	}
+}
@@ -0,0 +1,80 @@
+package com.sg.ocr;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/*
+ * Benchmarks for scanning whole files. Scores are in entries per second, and the bytes counter
+ * reports bytes read per second. Run with the gc profiler to see allocation rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FileScanBenchmark {
+	private static final int ENTRIES = 100000;
+
+	//ratio of illegal and error entries in the file.
+	@Param({"0.0", "0.3"})
+	public double noiseRatio;
+
+	@Param({"-verify", "-verify -fix"})
+	public String options;
+
+	private Path file;
+	private long fileSize;
+	private Set<String> optionSet;
+	private OcrDemo ocrDemo;
+
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	public static class Counters {
+		public long bytes;
+	}
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		file = Files.createTempFile("ocr-bench", ".txt");
+		new EntryGenerator(42).write(file, ENTRIES, noiseRatio / 2, noiseRatio / 2);
+		fileSize = Files.size(file);
+		optionSet = new HashSet<>(Arrays.asList(options.split(" ")));
+		ocrDemo = new OcrDemo();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		ocrDemo.close();
+		Files.deleteIfExists(file);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ENTRIES)
+	public void scanFile(Counters counters, Blackhole bh) throws IOException {
+		ocrDemo.scanFile(file.toString(), optionSet, bh::consume);
+		counters.bytes += fileSize;
+	}
+}
@@ -0,0 +1,152 @@
+package com.sg.ocr;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.sg.ocr.SevenSegmentScanner.ScanResult;
+
+/*
+ * Benchmarks for scanning single entries. Each invocation scans a set of generated entries,
+ * so scores are in entries per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScannerBenchmark {
+	private static final int ENTRIES = 1024;
+
+	private SevenSegmentScanner scanner;
+	private List<List<String>> validEntries;
+	private List<List<String>> illegalEntries;
+	private List<List<String>> errorEntries;
+	private List<String> numbers;
+	private int[] packedNumbers;
+	private boolean[] valid;
+	private List<ScanResult> errorResults;
+	//valid entries held in a direct buffer as mapped files are, with the start and length of their lines.
+	private ByteBuffer entryBuffer;
+	private int[] entryLines;
+
+	@Setup
+	public void setup() {
+		scanner = new SevenSegmentScanner(9);
+		EntryGenerator generator = new EntryGenerator(42);
+		validEntries = new ArrayList<>();
+		illegalEntries = new ArrayList<>();
+		errorEntries = new ArrayList<>();
+		numbers = new ArrayList<>();
+		errorResults = new ArrayList<>();
+		for(int i = 0; i < ENTRIES; i++) {
+			validEntries.add(generator.entry(EntryGenerator.Kind.VALID));
+			illegalEntries.add(generator.entry(EntryGenerator.Kind.ILLEGAL));
+			errorEntries.add(generator.entry(EntryGenerator.Kind.ERROR));
+			numbers.add(generator.accountNumber(i % 2 == 0 ? EntryGenerator.Kind.VALID : EntryGenerator.Kind.ERROR));
+		}
+		errorEntries.forEach(lines -> errorResults.add(scanner.scanLines(lines, true)));
+		packedNumbers = numbers.stream().mapToInt(Integer::parseInt).toArray();
+		valid = new boolean[ENTRIES];
+		entryBuffer = ByteBuffer.allocateDirect(ENTRIES * 4 * 28);
+		entryLines = new int[ENTRIES * 6];
+		for(int i = 0; i < ENTRIES; i++) {
+			for(int j = 0; j < 3; j++) {
+				entryLines[i * 6 + j * 2] = entryBuffer.position();
+				entryLines[i * 6 + j * 2 + 1] = validEntries.get(i).get(j).length();
+				entryBuffer.put(validEntries.get(i).get(j).getBytes(StandardCharsets.ISO_8859_1)).put((byte) '\n');
+			}
+			entryBuffer.put((byte) '\n');
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ENTRIES)
+	public void scanValid(Blackhole bh) {
+		for(List<String> lines : validEntries) {
+			bh.consume(scanner.scanLines(lines, true, false));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ENTRIES)
+	public void scanBufferedValid(Blackhole bh) {
+		for(int i = 0; i < ENTRIES; i++) {
+			bh.consume(scanner.scanLines(entryBuffer, entryLines[i * 6], entryLines[i * 6 + 2], entryLines[i * 6 + 4], true, false));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ENTRIES)
+	public void scanIllegalWithFix(Blackhole bh) {
+		for(List<String> lines : illegalEntries) {
+			bh.consume(scanner.scanLines(lines, true, true));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ENTRIES)
+	public void scanErrorWithFix(Blackhole bh) {
+		for(List<String> lines : errorEntries) {
+			bh.consume(scanner.scanLines(lines, true, true));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ENTRIES)
+	public void verifyLines() throws InvalidDataException {
+		for(List<String> lines : validEntries) {
+			for(String line : lines) {
+				scanner.verifyLine(line);
+			}
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ENTRIES)
+	public int verifyBufferedLines() {
+		int invalid = 0;
+		for(int i = 0; i < ENTRIES; i++) {
+			invalid += scanner.firstInvalidLine(entryBuffer, entryLines, i * 6);
+		}
+		return invalid;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ENTRIES)
+	public void checksum(Blackhole bh) {
+		for(String number : numbers) {
+			bh.consume(scanner.checksum(number));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ENTRIES)
+	public int checksumBatch() {
+		return scanner.checksum(packedNumbers, valid);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ENTRIES)
+	public void tryFixingForErrorDigits(Blackhole bh) {
+		for(ScanResult result : errorResults) {
+			bh.consume(scanner.tryFixingForErrorDigits(result));
+		}
+	}
+}
@@ -0,0 +1,206 @@
+package com.sg.ocr;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/*
+ * Scans many files concurrently on a shared pool of threads, all files sharing the same scanner.
+ * Inputs can be files, directories, glob patterns or manifest files (prefixed with @) listing
+ * one file per line.
+ * Output of each file is written to its own file in the output directory, or when there is no
+ * output directory, printed in input order with each file's output following a header naming the file.
+ */
+class BatchScanner implements Closeable {
+	private static final String GLOB_CHARS = "*?[{";
+	private static final String MANIFEST_PREFIX = "@";
+	private static final String OUTPUT_EXTENSION = ".out";
+
+	private final OcrDemo ocrDemo;
+	private final OutputWriter.Format format;
+	private final ExecutorService pool;
+	private final int threads;
+
+	/*
+	 * ocrDemo is expected to scan on the calling thread, files are scanned in parallel instead.
+	 */
+	BatchScanner(OcrDemo ocrDemo, int threads) {
+		this(ocrDemo, threads, OutputWriter.Format.TEXT);
+	}
+
+	BatchScanner(OcrDemo ocrDemo, int threads, OutputWriter.Format format) {
+		this.ocrDemo = ocrDemo;
+		this.format = format;
+		this.threads = threads;
+		this.pool = Executors.newFixedThreadPool(threads, r -> {
+			Thread t = new Thread(r, "ocr-batch");
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	/*
+	 * Returns true if the inputs need scanning in batch mode, that is anything other than a single file.
+	 */
+	static boolean isBatch(List<String> inputs) {
+		return inputs.size() > 1 || isPattern(inputs.get(0)) || inputs.get(0).startsWith(MANIFEST_PREFIX)
+				|| Files.isDirectory(Paths.get(inputs.get(0)));
+	}
+
+	private static boolean isPattern(String input) {
+		return input.chars().anyMatch(c -> GLOB_CHARS.indexOf(c) >= 0);
+	}
+
+	/*
+	 * Expands the inputs to the list of files to scan. Directories are walked for all their
+	 * regular files, in name order.
+	 */
+	static List<Path> resolveInputs(List<String> inputs) throws IOException {
+		List<Path> files = new ArrayList<>();
+		for(String input : inputs) {
+			if(input.startsWith(MANIFEST_PREFIX)) {
+				List<String> listed = Files.readAllLines(Paths.get(input.substring(MANIFEST_PREFIX.length())), StandardCharsets.UTF_8)
+						.stream().map(String::trim).filter(l -> !l.isEmpty() && !l.startsWith("#")).collect(Collectors.toList());
+				for(String file : listed) {
+					files.add(Paths.get(file));
+				}
+			} else if(isPattern(input)) {
+				files.addAll(resolvePattern(input));
+			} else if(Files.isDirectory(Paths.get(input))) {
+				files.addAll(walk(Paths.get(input), p -> true));
+			} else {
+				files.add(Paths.get(input));
+			}
+		}
+		return files;
+	}
+
+	/*
+	 * Walks the directory part of the pattern that has no glob characters and matches the files found.
+	 */
+	private static List<Path> resolvePattern(String pattern) throws IOException {
+		Path base = Paths.get(pattern);
+		while(base != null && isPattern(base.toString())) {
+			base = base.getParent();
+		}
+		PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+		return walk(base == null ? Paths.get("") : base, matcher);
+	}
+
+	private static List<Path> walk(Path dir, PathMatcher matcher) throws IOException {
+		try (Stream<Path> paths = Files.walk(dir)) {
+			return paths.filter(Files::isRegularFile).filter(matcher::matches).sorted().collect(Collectors.toList());
+		}
+	}
+
+	/*
+	 * Scans the files and writes their output. Files failing to scan are reported and skipped.
+	 * At most threads * 2 files are scanned ahead of the file being written, so output of files
+	 * held in memory until their turn to be printed does not grow with the number of files.
+	 * Returns the number of files that failed.
+	 */
+	int scan(List<Path> files, Set<String> options, Path outDir, PrintStream out) throws IOException {
+		boolean group = options.contains("-verify");
+		boolean detailed = options.contains("-detailed");
+		Deque<Future<byte[]>> pending = new ArrayDeque<>();
+		Set<String> outNames = new HashSet<>();
+		int failed = 0;
+		int written = 0;
+		try {
+			for(Path file : files) {
+				Path outFile = outDir == null ? null : outDir.resolve(uniqueName(file, outNames));
+				pending.add(pool.submit(() -> scanFile(file, options, group, detailed, outFile)));
+				if(pending.size() >= threads * 2) {
+					failed += write(files.get(written++), pending.poll(), outDir, out);
+				}
+			}
+			while(!pending.isEmpty()) {
+				failed += write(files.get(written++), pending.poll(), outDir, out);
+			}
+		} finally {
+			pending.forEach(f -> f.cancel(true));
+		}
+		out.flush();
+		return failed;
+	}
+
+	/*
+	 * Waits for the scan of the file and prints its output if not written to the output directory. 
+	 * Returns 1 if the file failed to scan, 0 otherwise.
+	 */
+	private static int write(Path file, Future<byte[]> scan, Path outDir, PrintStream out) throws IOException {
+		try {
+			byte[] output = scan.get();
+			if(outDir == null) {
+				out.println(String.format("==> %s <==", file));
+				out.write(output);
+			}
+			return 0;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while scanning", e);
+		} catch (ExecutionException e) {
+			System.err.println(String.format("Error while scanning file %s - %s", file, e.getCause()));
+			return 1;
+		}
+	}
+
+	/*
+	 * Scans a file writing to the output file if given, otherwise returns the output.
+	 */
+	private byte[] scanFile(Path file, Set<String> options, boolean group, boolean detailed, Path outFile) throws IOException {
+		if(outFile != null) {
+			try (FileChannel channel = FileChannel.open(outFile, StandardOpenOption.CREATE, 
+					StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+				scanFile(file, options, new OutputWriter(format, group, detailed, channel));
+			}
+			return new byte[0];
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		scanFile(file, options, new OutputWriter(format, group, detailed, bytes));
+		return bytes.toByteArray();
+	}
+
+	private void scanFile(Path file, Set<String> options, OutputWriter writer) throws IOException {
+		try (OutputWriter outWriter = writer) {
+			ocrDemo.scanFile(file.toString(), options, outWriter::write);
+		}
+	}
+
+	/*
+	 * Output file name of the input, made unique if another input has the same name.
+	 */
+	private static String uniqueName(Path file, Set<String> names) {
+		String name = file.getFileName() + OUTPUT_EXTENSION;
+		for(int i = 2; !names.add(name); i++) {
+			name = file.getFileName() + "-" + i + OUTPUT_EXTENSION;
+		}
+		return name;
+	}
+
+	@Override
+	public void close() {
+		pool.shutdownNow();
+	}
+}
@@ -0,0 +1,128 @@
+package com.sg.ocr;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Progress of a file scan, saved to a small side file so that a scan that did not complete can
+ * carry on from where it got to. Input offset is the position in the input file of the next entry
+ * to scan, and output position is the size of the output written for the entries before it.
+ */
+class Checkpoint {
+	private static final String INPUT = "input";
+	private static final String INPUT_OFFSET = "inputOffset";
+	private static final String LINE_NUMBER = "lineNumber";
+	private static final String ENTRIES = "entries";
+	private static final String OUTPUT_POSITION = "outputPosition";
+
+	private final String input;
+	private final long inputOffset;
+	private final int lineNumber;
+	private final long entries;
+	private final long outputPosition;
+
+	Checkpoint(String input, long inputOffset, int lineNumber, long entries, long outputPosition) {
+		this.input = input;
+		this.inputOffset = inputOffset;
+		this.lineNumber = lineNumber;
+		this.entries = entries;
+		this.outputPosition = outputPosition;
+	}
+
+	String getInput() {
+		return input;
+	}
+
+	long getInputOffset() {
+		return inputOffset;
+	}
+
+	/*
+	 * Line number of the next entry to scan.
+	 */
+	int getLineNumber() {
+		return lineNumber;
+	}
+
+	/*
+	 * Number of entries scanned before the checkpoint.
+	 */
+	long getEntries() {
+		return entries;
+	}
+
+	long getOutputPosition() {
+		return outputPosition;
+	}
+
+	static Checkpoint read(Path file) throws IOException {
+		Properties properties = new Properties();
+		try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			properties.load(reader);
+		}
+		try {
+			return new Checkpoint(properties.getProperty(INPUT), Long.parseLong(properties.getProperty(INPUT_OFFSET)),
+					Integer.parseInt(properties.getProperty(LINE_NUMBER)), Long.parseLong(properties.getProperty(ENTRIES)),
+					Long.parseLong(properties.getProperty(OUTPUT_POSITION)));
+		} catch (NumberFormatException e) {
+			throw new IOException(String.format("Invalid checkpoint file %s", file), e);
+		}
+	}
+
+	/*
+	 * Writes the checkpoint to the file, replacing the previous one in one move so a scan dying
+	 * while writing it leaves the previous checkpoint in place.
+	 */
+	void writeTo(Path file) throws IOException {
+		Properties properties = new Properties();
+		properties.setProperty(INPUT, input);
+		properties.setProperty(INPUT_OFFSET, Long.toString(inputOffset));
+		properties.setProperty(LINE_NUMBER, Integer.toString(lineNumber));
+		properties.setProperty(ENTRIES, Long.toString(entries));
+		properties.setProperty(OUTPUT_POSITION, Long.toString(outputPosition));
+		Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+		try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+			properties.store(writer, null);
+		}
+		Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/*
+	 * Writes a checkpoint of a scan to the file at most once every interval. The output is flushed
+	 * first so the output position covers the results of all entries before the input offset.
+	 */
+	static class Recorder implements OcrDemo.ScanProgress {
+		private final String input;
+		private final Path file;
+		private final long interval;
+		private final OutputWriter outWriter;
+		private final FileChannel out;
+		private long last = System.nanoTime();
+
+		Recorder(String input, Path file, int intervalSeconds, OutputWriter outWriter, FileChannel out) {
+			this.input = input;
+			this.file = file;
+			this.interval = TimeUnit.SECONDS.toNanos(intervalSeconds);
+			this.outWriter = outWriter;
+			this.out = out;
+		}
+
+		@Override
+		public void reached(long offset, int lineNumber, long entries) throws IOException {
+			long now = System.nanoTime();
+			if(now - last < interval)
+				return;
+			last = now;
+			outWriter.flush();
+			new Checkpoint(input, offset, lineNumber, entries, out.position()).writeTo(file);
+		}
+	}
+}
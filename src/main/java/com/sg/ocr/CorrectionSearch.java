@@ -0,0 +1,115 @@
+package com.sg.ocr;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Searches for numbers that pass checksum by substituting digits of a scanned number with their
+ * alternates. Up to maxEdits digits are substituted and every illegal digit must be substituted.
+ * Branches are cut as soon as the illegal digits left outnumber the edits left, and once no edits
+ * are left the checksum of the rest of the number is known from a precomputed sum, so only the
+ * branches that substitute digits are walked.
+ * The number of search steps per number is bounded by the budget to keep the time spent on
+ * badly scanned numbers in check.
+ */
+class CorrectionSearch {
+	static final int DEFAULT_MAX_EDITS = 1;
+	static final int DEFAULT_BUDGET = 100000;
+
+	private final int maxEdits;
+	private final int budget;
+
+	CorrectionSearch() {
+		this(DEFAULT_MAX_EDITS, DEFAULT_BUDGET);
+	}
+
+	CorrectionSearch(int maxEdits, int budget) {
+		if(maxEdits < 1 || budget < 1)
+			throw new IllegalArgumentException("Number of edits and budget must be at least 1");
+		this.maxEdits = maxEdits;
+		this.budget = budget;
+	}
+
+	/*
+	 * Returns numbers that pass checksum in the order they are found, which is substituting
+	 * digits from the left and alternates in their order. alternates holds the possible digits
+	 * for each position. Returns null if the budget ran out before the search was complete.
+	 */
+	List<String> search(String number, String[] alternates) {
+		return search(number, alternates, Layout.of(number.length()));
+	}
+
+	/*
+	 * Same as above, checksum being worked out with the weights and modulus of the layout.
+	 */
+	List<String> search(String number, String[] alternates, Layout layout) {
+		Search search = new Search(number.toCharArray(), alternates, layout);
+		if(search.illegalFrom[0] > maxEdits)
+			return new ArrayList<>();
+		return search.walk(0, 0, maxEdits) ? search.found : null;
+	}
+
+	private class Search {
+		private final char[] digits;
+		private final char[] candidate;
+		private final String[] alternates;
+		private final Layout layout;
+		//weighted sum and count of illegal digits from each position to the end.
+		private final int[] sumFrom;
+		private final int[] illegalFrom;
+		private final List<String> found = new ArrayList<>();
+		private int steps;
+
+		Search(char[] digits, String[] alternates, Layout layout) {
+			this.digits = digits;
+			this.candidate = digits.clone();
+			this.alternates = alternates;
+			this.layout = layout;
+			sumFrom = new int[digits.length + 1];
+			illegalFrom = new int[digits.length + 1];
+			for(int i = digits.length - 1; i >= 0; i--) {
+				boolean illegal = !isDigit(digits[i]);
+				sumFrom[i] = sumFrom[i + 1] + (illegal ? 0 : weight(i) * (digits[i] - '0'));
+				illegalFrom[i] = illegalFrom[i + 1] + (illegal ? 1 : 0);
+			}
+		}
+
+		/*
+		 * Walks substitutions from pos onwards, returns false if the budget ran out.
+		 */
+		boolean walk(int pos, int sum, int editsLeft) {
+			if(++steps > budget)
+				return false;
+			if(illegalFrom[pos] > editsLeft)
+				return true;
+			if(editsLeft == 0 || pos == digits.length) {
+				//nothing more to substitute, rest of the number stays as scanned.
+				if(editsLeft < maxEdits && (sum + sumFrom[pos]) % layout.getModulus() == 0)
+					found.add(new String(candidate));
+				return true;
+			}
+			String alts = alternates[pos];
+			for(int i = 0; i < alts.length(); i++) {
+				char alt = alts.charAt(i);
+				if(alt != digits[pos] && isDigit(alt)) {
+					candidate[pos] = alt;
+					boolean complete = walk(pos + 1, sum + weight(pos) * (alt - '0'), editsLeft - 1);
+					candidate[pos] = digits[pos];
+					if(!complete)
+						return false;
+				}
+			}
+			if(isDigit(digits[pos]))
+				return walk(pos + 1, sum + weight(pos) * (digits[pos] - '0'), editsLeft);
+			return true;
+		}
+
+		private int weight(int pos) {
+			return layout.weight(pos);
+		}
+	}
+
+	private static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
+	}
+}
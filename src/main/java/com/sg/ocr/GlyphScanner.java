@@ -0,0 +1,91 @@
+package com.sg.ocr;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import com.sg.ocr.fsm.DigitDecoder;
+import com.sg.ocr.fsm.FSMBuilder;
+import com.sg.ocr.fsm.GlyphSet;
+
+/*
+ * Scanner for printouts of glyphs other than account numbers, such as hexadecimal numbers. Entries are
+ * decoded into text with a decoder compiled once for the glyph set, and are not checked or fixed, any
+ * drawing that is not a glyph of the set being read as ERROR_DIGIT. Entries can have any number of
+ * glyphs, each entry being as long as its lines.
+ */
+class GlyphScanner {
+	private final DigitDecoder decoder;
+	private final int cellWidth;
+
+	GlyphScanner(GlyphSet glyphSet, int cellWidth) {
+		if(cellWidth < DigitDecoder.SEGMENTS_PER_LINE)
+			throw new IllegalArgumentException(String.format("Cell width must be at least %s", DigitDecoder.SEGMENTS_PER_LINE));
+		this.decoder = new FSMBuilder().compile(glyphSet);
+		this.cellWidth = cellWidth;
+	}
+
+	/*
+	 * Returns the glyph set named by the -glyphs option, hex for the built in hexadecimal glyphs or
+	 * a file of glyphs to scan along with the digits.
+	 */
+	static GlyphSet glyphSetOf(String name) throws IOException {
+		if("hex".equals(name))
+			return GlyphSet.hex();
+		try (Reader reader = Files.newBufferedReader(Paths.get(name), StandardCharsets.UTF_8)) {
+			return GlyphSet.DIGITS.with(GlyphSet.read(reader));
+		}
+	}
+
+	String scanLines(List<String> lines) throws InvalidDataException {
+		int[] codes = new int[glyphCount(lines.get(0).length(), lines.get(1).length(), lines.get(2).length())];
+		DigitDecoder.codesOf(lines.get(0), lines.get(1), lines.get(2), cellWidth, codes);
+		return decode(codes);
+	}
+
+	/*
+	 * Decodes the entry held in the buffer, lines being given as start and length pairs.
+	 */
+	String scanLines(ByteBuffer buffer, int[] entry) throws InvalidDataException {
+		int[] codes = new int[glyphCount(entry[1], entry[3], entry[5])];
+		DigitDecoder.codesOf(buffer, entry[0], entry[2], entry[4], cellWidth, codes);
+		return decode(codes);
+	}
+
+	private int glyphCount(int length1, int length2, int length3) throws InvalidDataException {
+		if(length1 != length2 || length1 != length3 || length1 % cellWidth != 0)
+			throw new InvalidDataException("Unexpected number of characters");
+		return length1 / cellWidth;
+	}
+
+	private String decode(int[] codes) {
+		char[] glyphs = new char[codes.length];
+		decoder.valuesOf(codes, glyphs);
+		return new String(glyphs);
+	}
+
+	/*
+	 * Writes the text of each entry of the file to out, a line for each entry.
+	 */
+	void scanFile(String path, OutputStream out) throws IOException {
+		byte[] newLine = System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
+		Path file = Paths.get(path);
+		try (MappedEntryReader reader = new MappedEntryReader(file)) {
+			while(reader.next()) {
+				try {
+					out.write(scanLines(reader.buffer(), reader.entry()).getBytes(StandardCharsets.ISO_8859_1));
+				} catch (InvalidDataException e) {
+					throw new RuntimeException(String.format("Error scanning line %s", reader.lineNumber()), e);
+				}
+				out.write(newLine);
+			}
+		}
+		out.flush();
+	}
+}
@@ -0,0 +1,144 @@
+package com.sg.ocr;
+
+import java.util.Arrays;
+
+import com.sg.ocr.SevenSegmentScanner.ScanResult;
+import com.sg.ocr.fsm.DigitDecoder;
+
+/*
+ * Describes how numbers are laid out in entries and how they are checked. Each digit takes a cell
+ * cellWidth characters wide on each of the three lines, the digit being drawn in the first 3
+ * characters of the cell. A number passes checksum if the sum of its digits multiplied by their
+ * weights, first digit first, is a multiple of the modulus.
+ * Layouts are immutable and can be used as keys.
+ */
+final class Layout {
+	static final int DEFAULT_DIGIT_COUNT = 9;
+	static final int DEFAULT_MODULUS = 11;
+	//account numbers, weighted 9 down to 1.
+	static final Layout DEFAULT = of(DEFAULT_DIGIT_COUNT);
+
+	private final int digitCount;
+	private final int cellWidth;
+	private final int[] weights;
+	private final int modulus;
+
+	Layout(int digitCount, int cellWidth, int[] weights, int modulus) {
+		if(digitCount < 1 || digitCount > ScanResult.MAX_DIGITS)
+			throw new IllegalArgumentException(String.format("Number of digits must be between 1 and %s", ScanResult.MAX_DIGITS));
+		if(cellWidth < DigitDecoder.SEGMENTS_PER_LINE)
+			throw new IllegalArgumentException(String.format("Cell width must be at least %s", DigitDecoder.SEGMENTS_PER_LINE));
+		if(weights.length != digitCount)
+			throw new IllegalArgumentException(String.format("Expected %s weights, one for each digit", digitCount));
+		if(modulus < 2)
+			throw new IllegalArgumentException("Modulus must be at least 2");
+		this.digitCount = digitCount;
+		this.cellWidth = cellWidth;
+		this.weights = weights.clone();
+		this.modulus = modulus;
+	}
+
+	/*
+	 * Layout of digitCount digits 3 characters wide, weighted by their position from the right, modulus 11.
+	 */
+	static Layout of(int digitCount) {
+		return of(digitCount, DigitDecoder.SEGMENTS_PER_LINE, DEFAULT_MODULUS);
+	}
+
+	static Layout of(int digitCount, int cellWidth, int modulus) {
+		return new Layout(digitCount, cellWidth, defaultWeights(digitCount), modulus);
+	}
+
+	private static int[] defaultWeights(int digitCount) {
+		int[] weights = new int[Math.max(digitCount, 0)];
+		for(int i = 0; i < weights.length; i++) {
+			weights[i] = digitCount - i;
+		}
+		return weights;
+	}
+
+	/*
+	 * Returns the layout for lines of the given length, with as many digits as fit in the line and
+	 * the same cell width and modulus. Layouts with weights of their own and lengths that are not a
+	 * whole number of cells keep the layout as it is, for lines to then be rejected as the wrong length.
+	 */
+	Layout forLineLength(int lineLength) {
+		int count = lineLength / cellWidth;
+		if(lineLength == lineLength() || lineLength % cellWidth != 0 || count < 1 || count > ScanResult.MAX_DIGITS
+				|| !Arrays.equals(weights, defaultWeights(digitCount)))
+			return this;
+		return of(count, cellWidth, modulus);
+	}
+
+	int getDigitCount() {
+		return digitCount;
+	}
+
+	int getCellWidth() {
+		return cellWidth;
+	}
+
+	int getModulus() {
+		return modulus;
+	}
+
+	/*
+	 * Weight of the digit at position pos, the first digit being at 0.
+	 */
+	int weight(int pos) {
+		return weights[pos];
+	}
+
+	/*
+	 * Number of characters in each line of an entry.
+	 */
+	int lineLength() {
+		return digitCount * cellWidth;
+	}
+
+	/*
+	 * Returns true if the number passes checksum, numbers of another number of digits never do.
+	 */
+	boolean checksum(char[] number) {
+		if(number.length != digitCount)
+			return false;
+		int sum = 0;
+		for(int i = 0; i < digitCount; i++) {
+			sum += digitValue(number[i]) * weights[i];
+		}
+		return sum % modulus == 0;
+	}
+
+	boolean checksum(String number) {
+		if(number.length() != digitCount)
+			return false;
+		int sum = 0;
+		for(int i = 0; i < digitCount; i++) {
+			sum += digitValue(number.charAt(i)) * weights[i];
+		}
+		return sum % modulus == 0;
+	}
+
+	private static int digitValue(char c) {
+		return c >= '0' && c <= '9' ? c - '0' : Character.getNumericValue(c);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if(!(o instanceof Layout))
+			return false;
+		Layout other = (Layout) o;
+		return digitCount == other.digitCount && cellWidth == other.cellWidth && modulus == other.modulus
+				&& Arrays.equals(weights, other.weights);
+	}
+
+	@Override
+	public int hashCode() {
+		return ((digitCount * 31 + cellWidth) * 31 + modulus) * 31 + Arrays.hashCode(weights);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s digits %s wide, weights %s modulus %s", digitCount, cellWidth, Arrays.toString(weights), modulus);
+	}
+}
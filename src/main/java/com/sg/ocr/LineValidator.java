@@ -0,0 +1,88 @@
+package com.sg.ocr;
+
+import java.nio.ByteBuffer;
+
+/*
+ * Checks lines hold nothing but the characters digits are drawn with, space, pipe and underscore.
+ * Lines in buffers are checked 8 bytes at a time, each byte of a word being compared with the three
+ * characters at once using word arithmetic (SWAR), so a 27 character line takes 4 word reads
+ * rather than 27 table lookups.
+ */
+final class LineValidator {
+	private static final long ONES = 0x0101010101010101L;
+	private static final long LOW_BITS = 0x7F7F7F7F7F7F7F7FL;
+	private static final long HIGH_BITS = 0x8080808080808080L;
+	private static final long SPACES = ONES * ' ';
+	private static final long PIPES = ONES * '|';
+	private static final long UNDERSCORES = ONES * '_';
+
+	private LineValidator() {
+	}
+
+	/*
+	 * Returns true if all characters of the line are legal.
+	 */
+	static boolean isLegal(String line) {
+		for(int i = 0; i < line.length(); i++) {
+			if(!isLegal(line.charAt(i)))
+				return false;
+		}
+		return true;
+	}
+
+	/*
+	 * Returns true if all bytes of the line held in the buffer are legal. Lines of 8 bytes or more
+	 * are read as words, the last word overlapping the one before it instead of checking the
+	 * remaining bytes one at a time.
+	 */
+	static boolean isLegal(ByteBuffer buffer, int start, int length) {
+		if(length < Long.BYTES) {
+			for(int i = start; i < start + length; i++) {
+				if(!isLegal((char) (buffer.get(i) & 0xFF)))
+					return false;
+			}
+			return true;
+		}
+		int last = start + length - Long.BYTES;
+		for(int i = start; i < last; i += Long.BYTES) {
+			if(!isLegal(buffer.getLong(i)))
+				return false;
+		}
+		return isLegal(buffer.getLong(last));
+	}
+
+	/*
+	 * Returns the index of the first of the three lines of an entry that is either not lineLength
+	 * long or holds illegal characters, or -1 if all three are valid. Lines are given as start and
+	 * length pairs from offset in entry, as read by MappedEntryReader.
+	 */
+	static int firstInvalidLine(ByteBuffer buffer, int[] entry, int offset, int lineLength) {
+		for(int i = 0; i < 3; i++) {
+			int start = entry[offset + i * 2];
+			int length = entry[offset + i * 2 + 1];
+			if(length != lineLength || !isLegal(buffer, start, length))
+				return i;
+		}
+		return -1;
+	}
+
+	private static boolean isLegal(char c) {
+		return c == ' ' || c == '|' || c == '_';
+	}
+
+	/*
+	 * A byte is legal when it equals one of the characters, that is its xor with one of them is zero.
+	 */
+	private static boolean isLegal(long word) {
+		return (nonZeroBytes(word ^ SPACES) & nonZeroBytes(word ^ PIPES) & nonZeroBytes(word ^ UNDERSCORES) & HIGH_BITS) == 0;
+	}
+
+	/*
+	 * Returns the word with the high bit of each byte set if the byte is not zero, lower bits being
+	 * left over. Low 7 bits of a byte are added to 0x7F so its high bit is set if any of them are,
+	 * which never carries into the next byte.
+	 */
+	private static long nonZeroBytes(long word) {
+		return ((word & LOW_BITS) + LOW_BITS) | word;
+	}
+}
@@ -0,0 +1,396 @@
+package com.sg.ocr;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/*
+ * Reads entries from a file through memory mapped windows of the file. Lines are never decoded into
+ * strings, instead the start and length of the three lines of the current entry within the mapped
+ * buffer are exposed to the scanner.
+ * Entries are expected to be 4 lines long, and the fourth line is skipped whatever its content is.
+ * 
+ * When reading tolerantly, lines are checked as they are read and entries are made of three valid 
+ * lines in a row. Where an entry is expected, at the start of the file or after a separator, any three
+ * valid lines followed by a blank line or the end of the file are an entry, so entries with stray
+ * segments on their top line are still scanned. Otherwise the first line must look like the top line
+ * of digits. Lines that can not be part of an entry are handed to the reject handler and reading 
+ * carries on from the next line that can start an entry, so a dropped or malformed line only costs 
+ * the entry it belongs to.
+ */
+class MappedEntryReader implements Closeable {
+	static final int LINES_PER_ENTRY = 4;
+	static final String UNEXPECTED_LENGTH = "Unexpected number of characters";
+	static final String ILLEGAL_CHARACTERS = "Illegal characters";
+	static final String NOT_FIRST_LINE = "Not the first line of an entry";
+	static final String INCOMPLETE_ENTRY = "Incomplete entry";
+	//size of file region mapped at a time.
+	private static final int WINDOW_SIZE = 1 << 26;
+	private static final int CHAR_PER_DIGIT = 3;
+	//longest first line looked for when detecting the line length.
+	private static final int MAX_FIRST_LINE = 1 << 12;
+
+	/*
+	 * Receives the lines that are not part of any entry when reading tolerantly.
+	 */
+	interface RejectHandler {
+		void reject(int lineNumber, String reason, String line);
+	}
+
+	private final FileChannel channel;
+	private final long fileSize;
+	private final int windowSize;
+	private ByteBuffer window;
+	private long windowStart;
+	//position of the next entry within the window.
+	private int position;
+	//start and length pairs of the three lines of the current entry, length is -1 for missing lines.
+	private final int[] entry = new int[6];
+	private int lineNumber = 1 - LINES_PER_ENTRY;
+	//expected length of entry lines and of the cell of each digit, and where rejected lines go, null unless reading tolerantly.
+	private final int lineLength;
+	private final int cellWidth;
+	private final RejectHandler rejects;
+	//line number of the line at position, whether it should be a separator and whether an entry is 
+	//expected to start there, when reading tolerantly.
+	private int positionLine = 1;
+	private boolean afterEntry;
+	private boolean atBoundary = true;
+
+	MappedEntryReader(Path path) throws IOException {
+		this(path, WINDOW_SIZE);
+	}
+
+	MappedEntryReader(Path path, int windowSize) throws IOException {
+		this(path, windowSize, 0, null);
+	}
+
+	/*
+	 * Reads tolerantly, entry lines being laid out as given.
+	 */
+	MappedEntryReader(Path path, Layout layout, RejectHandler rejects) throws IOException {
+		this(path, WINDOW_SIZE, layout.lineLength(), layout.getCellWidth(), rejects);
+	}
+
+	/*
+	 * Reads tolerantly, entry lines being lineLength characters long with digits 3 characters wide.
+	 */
+	MappedEntryReader(Path path, int windowSize, int lineLength, RejectHandler rejects) throws IOException {
+		this(path, windowSize, lineLength, CHAR_PER_DIGIT, rejects);
+	}
+
+	MappedEntryReader(Path path, int windowSize, int lineLength, int cellWidth, RejectHandler rejects) throws IOException {
+		//pipes and devices report a size of 0, which would read as an empty file.
+		if(Files.exists(path) && !Files.isRegularFile(path))
+			throw new IOException(String.format("%s is not a regular file", path));
+		this.channel = FileChannel.open(path, StandardOpenOption.READ);
+		this.fileSize = channel.size();
+		this.windowSize = windowSize;
+		this.lineLength = lineLength;
+		this.cellWidth = cellWidth;
+		this.rejects = rejects;
+	}
+
+	/*
+	 * Returns the length of the first line of the file, or -1 if the file is empty or its first
+	 * line is too long to be part of an entry.
+	 */
+	static int firstLineLength(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			ByteBuffer buffer = ByteBuffer.allocate(MAX_FIRST_LINE);
+			while(buffer.hasRemaining() && channel.read(buffer) >= 0) {
+			}
+			buffer.flip();
+			for(int i = 0; i < buffer.limit(); i++) {
+				if(buffer.get(i) == '\n')
+					return i > 0 && buffer.get(i - 1) == '\r' ? i - 1 : i;
+			}
+			return buffer.limit() > 0 && buffer.limit() < MAX_FIRST_LINE ? buffer.limit() : -1;
+		}
+	}
+
+	/*
+	 * Moves to the position following an entry, as returned by offset(), lineNumber being the line
+	 * number at that position. Reading carries on from there as if the entries before had been read.
+	 */
+	void seek(long offset, int lineNumber) throws IOException {
+		if(offset < 0 || offset > fileSize)
+			throw new IOException(String.format("Offset %s is outside the file", offset));
+		window = null;
+		windowStart = offset;
+		position = 0;
+		this.lineNumber = lineNumber - LINES_PER_ENTRY;
+		commit(0, lineNumber, true);
+	}
+
+	/*
+	 * Moves to the next entry, returns false if there are no more entries.
+	 */
+	boolean next() throws IOException {
+		if(rejects != null)
+			return nextValid();
+		long entryStart = windowStart + position;
+		if(entryStart >= fileSize)
+			return false;
+		if(window == null || !readEntry()) {
+			map(entryStart);
+			if(!readEntry())
+				throw new IOException(String.format("Entry at line %s is too long", lineNumber + LINES_PER_ENTRY));
+		}
+		lineNumber += LINES_PER_ENTRY;
+		return true;
+	}
+
+	private void map(long start) throws IOException {
+		windowStart = start;
+		position = 0;
+		window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(windowSize, fileSize - start));
+	}
+
+	/*
+	 * Locates the lines of the entry at the current position. Returns false if the window ends
+	 * before the entry does.
+	 */
+	private boolean readEntry() {
+		boolean windowAtEnd = windowStart + window.limit() >= fileSize;
+		int lineStart = position;
+		for(int i = 0; i < LINES_PER_ENTRY; i++) {
+			int lineEnd = indexOfNewLine(lineStart);
+			if(lineEnd < 0) {
+				if(!windowAtEnd)
+					return false;
+				lineEnd = window.limit();
+			}
+			if(i < 3) {
+				int length = lineStart < window.limit() ? lineEnd - lineStart : -1;
+				if(length > 0 && window.get(lineEnd - 1) == '\r')
+					length--;
+				entry[i * 2] = lineStart;
+				entry[i * 2 + 1] = length;
+			}
+			lineStart = Math.min(lineEnd + 1, window.limit());
+		}
+		position = lineStart;
+		return true;
+	}
+
+	/*
+	 * Moves to the next entry made of valid lines, rejecting lines on the way.
+	 */
+	private boolean nextValid() throws IOException {
+		while(windowStart + position < fileSize) {
+			if(window == null)
+				map(windowStart + position);
+			int linesBefore = positionLine;
+			int start = position;
+			if(readValidEntry())
+				return true;
+			if(windowStart + window.limit() >= fileSize)
+				return false;
+			if(start == 0 && position == 0 && positionLine == linesBefore)
+				throw new IOException(String.format("Entry at line %s is too long", positionLine));
+			//window ended within an entry, map again from the first line of the entry.
+			map(windowStart + position);
+		}
+		return false;
+	}
+
+	/*
+	 * Reads lines from the current position until three valid lines in a row are found. position 
+	 * is only moved past lines that are done with, so if the window ends first the lines of the 
+	 * partly read entry are read again from the next window. Returns true if an entry was found.
+	 */
+	private boolean readValidEntry() {
+		boolean windowAtEnd = windowStart + window.limit() >= fileSize;
+		int lineStart = position;
+		int line = positionLine;
+		int found = 0;
+		//whether the first line of the entry was taken for being where an entry is expected only.
+		boolean framedOnly = false;
+		while(lineStart < window.limit()) {
+			int lineEnd = indexOfNewLine(lineStart);
+			if(lineEnd < 0) {
+				if(!windowAtEnd)
+					return false;
+				lineEnd = window.limit();
+			}
+			int length = lineEnd - lineStart;
+			if(length > 0 && window.get(lineEnd - 1) == '\r')
+				length--;
+			String reason = checkLine(lineStart, length);
+			if(found > 0 && reason != null) {
+				//entry broken off, its lines are rejected and the line is checked again as a first line.
+				for(int i = 0; i < found; i++) {
+					reject(line - found + i, INCOMPLETE_ENTRY, entry[i * 2], entry[i * 2 + 1]);
+				}
+				found = 0;
+				commit(lineStart, line, false);
+			}
+			if(found == 0 && reason == null) {
+				framedOnly = !isFirstLine(lineStart);
+				if(framedOnly && !atBoundary)
+					reason = NOT_FIRST_LINE;
+			}
+			boolean separator = afterEntry && found == 0;
+			if(reason == null && !(separator && isBlank(lineStart, length))) {
+				entry[found * 2] = lineStart;
+				entry[found * 2 + 1] = length;
+				if(++found == 3) {
+					int next = Math.min(lineEnd + 1, window.limit());
+					if(framedOnly) {
+						int ends = endsEntry(next, windowAtEnd);
+						if(ends < 0)
+							return false;
+						if(ends == 0) {
+							//not followed by a separator, so the first line is checked as any other.
+							reject(line - 2, NOT_FIRST_LINE, entry[0], entry[1]);
+							commit(entry[2], line - 1, false);
+							lineStart = position;
+							line = positionLine;
+							found = 0;
+							continue;
+						}
+					}
+					lineNumber = line - 2;
+					commit(next, line + 1, true);
+					return true;
+				}
+			} else if(found == 0) {
+				//separator lines and blank lines between entries are skipped.
+				boolean blank = isBlank(lineStart, length);
+				if(!separator && !blank)
+					reject(line, reason, lineStart, length);
+				commit(Math.min(lineEnd + 1, window.limit()), line + 1, false);
+				atBoundary = separator || blank;
+			}
+			lineStart = Math.min(lineEnd + 1, window.limit());
+			line++;
+		}
+		for(int i = 0; i < found; i++) {
+			if(windowAtEnd)
+				reject(line - found + i, INCOMPLETE_ENTRY, entry[i * 2], entry[i * 2 + 1]);
+		}
+		if(windowAtEnd)
+			commit(window.limit(), line, false);
+		return false;
+	}
+
+	/*
+	 * Returns 1 if the line at start is blank or the file ends there, 0 if it is not, and -1 if
+	 * the window ends before the line does.
+	 */
+	private int endsEntry(int start, boolean windowAtEnd) {
+		if(start >= window.limit())
+			return windowAtEnd ? 1 : -1;
+		int end = indexOfNewLine(start);
+		if(end < 0) {
+			if(!windowAtEnd)
+				return -1;
+			end = window.limit();
+		}
+		return isBlank(start, end - start) ? 1 : 0;
+	}
+
+	private void commit(int newPosition, int newPositionLine, boolean entryRead) {
+		position = newPosition;
+		positionLine = newPositionLine;
+		afterEntry = entryRead;
+		atBoundary = false;
+	}
+
+	/*
+	 * Returns why the line can not be part of an entry, or null if it can.
+	 */
+	private String checkLine(int start, int length) {
+		if(length != lineLength)
+			return UNEXPECTED_LENGTH;
+		if(!LineValidator.isLegal(window, start, length))
+			return ILLEGAL_CHARACTERS;
+		return null;
+	}
+
+	/*
+	 * Top line of every digit has spaces on either side of its only segment.
+	 */
+	private boolean isFirstLine(int start) {
+		for(int i = start; i < start + lineLength; i += cellWidth) {
+			if(window.get(i) != ' ' || window.get(i + 2) != ' ')
+				return false;
+		}
+		return true;
+	}
+
+	private boolean isBlank(int start, int length) {
+		for(int i = start; i < start + length; i++) {
+			if(!Character.isWhitespace(window.get(i)))
+				return false;
+		}
+		return true;
+	}
+
+	private void reject(int line, String reason, int start, int length) {
+		byte[] bytes = new byte[length];
+		for(int i = 0; i < length; i++) {
+			bytes[i] = window.get(start + i);
+		}
+		rejects.reject(line, reason, new String(bytes, StandardCharsets.ISO_8859_1));
+	}
+
+	private int indexOfNewLine(int from) {
+		for(int i = from; i < window.limit(); i++) {
+			if(window.get(i) == '\n')
+				return i;
+		}
+		return -1;
+	}
+
+	/*
+	 * Buffer holding the current entry. Buffer is read only and only accessed with absolute
+	 * positions, so it can be read from other threads.
+	 */
+	ByteBuffer buffer() {
+		return window;
+	}
+
+	/*
+	 * Start and length pairs of the three lines of the current entry.
+	 */
+	int[] entry() {
+		return entry;
+	}
+
+	void copyEntry(int[] dest, int offset) {
+		System.arraycopy(entry, 0, dest, offset, entry.length);
+	}
+
+	/*
+	 * Line number of the first line of the current entry.
+	 */
+	int lineNumber() {
+		return lineNumber;
+	}
+
+	/*
+	 * Position in the file following the current entry.
+	 */
+	long offset() {
+		return windowStart + position;
+	}
+
+	/*
+	 * Line number at the position following the current entry.
+	 */
+	int nextLineNumber() {
+		return rejects != null ? positionLine : lineNumber + LINES_PER_ENTRY;
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+}
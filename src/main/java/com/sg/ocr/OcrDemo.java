@@ -1,34 +1,142 @@
 package com.sg.ocr;
 
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
-import java.io.FileReader;
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 import com.sg.ocr.SevenSegmentScanner.ScanResult;
+import com.sg.ocr.fsm.DigitDecoder;
 
 /*
- * Main application for scanning input files and extracting 9 digit account numbers.
+ * Main application for scanning input files and extracting account numbers, 9 digits long unless
+ * another layout is given. Layout can also be detected from the length of the first line of each input,
+ * a scanner being built once for each layout found.
  */
-public class OcrDemo {
-	//only 9 digit account numbers supported.
-	private static final int SUPPORTED_DIGIT_COUNT = 9;
-	private static final Set<String> SUPPORTED_OPTIONS = new HashSet<>(Arrays.asList("-verify", "-detailed", "-fix"));
+public class OcrDemo implements Closeable {
+	private static final Set<String> SUPPORTED_OPTIONS = new HashSet<>(Arrays.asList("-verify", "-detailed", "-fix", "-tolerant", "-resume"));
+	//options followed by a value.
+	private static final Set<String> VALUE_OPTIONS = new HashSet<>(Arrays.asList("-threads", "-fix-depth", "-fix-budget", 
+			"-metrics", "-metrics-interval", "-out", "-out-dir", "-server", "-format", "-cache", "-rejects", 
+			"-checkpoint", "-checkpoint-interval", "-digits", "-cell-width", "-weights", "-modulus", "-glyphs"));
+	//options that apply when scanning glyphs, which are neither checked nor fixed.
+	private static final Set<String> GLYPH_OPTIONS = new HashSet<>(Arrays.asList("-glyphs", "-cell-width", "-out"));
+	//number of entries handed over to a worker at a time when scanning in parallel.
+	private static final int BATCH_SIZE = 1024;
+	//longest first line read when detecting the layout of a stream.
+	private static final int MAX_FIRST_LINE = 1 << 12;
+	//start and length of the three lines of an entry read from a mapped file.
+	private static final int ENTRY_SIZE = 6;
+	//seconds between checkpoints unless specified.
+	private static final int DEFAULT_CHECKPOINT_INTERVAL = 10;
+	private static final ScanProgress NO_PROGRESS = (offset, lineNumber, entries) -> {};
 	
+	/*
+	 * Told how far a file scan has got, results of all entries before the offset in the file having 
+	 * been handed over. lineNumber is the line number at the offset.
+	 */
+	interface ScanProgress {
+		void reached(long offset, int lineNumber, long entries) throws IOException;
+	}
+
 	private SevenSegmentScanner scanner;
+	private final Layout layout;
+	private final boolean detectLayout;
+	//scanners of layouts other than the given layout, built as they are detected.
+	private final ConcurrentMap<Layout, SevenSegmentScanner> scanners = new ConcurrentHashMap<>();
+	private CorrectionSearch correctionSearch;
+	private ResultCache cache;
+	private final ScanMetrics metrics;
+	private final RejectLog rejects;
+	private final int threads;
+	private ExecutorService workers;
 	
 	OcrDemo() {
-		init();
+		this(1);
 	}
 
-	private void init() {
-		scanner = new SevenSegmentScanner(SUPPORTED_DIGIT_COUNT);
+	OcrDemo(int threads) {
+		this(threads, new CorrectionSearch());
+	}
+
+	OcrDemo(int threads, CorrectionSearch correctionSearch) {
+		this(threads, correctionSearch, ScanMetrics.DISABLED);
+	}
+
+	OcrDemo(int threads, CorrectionSearch correctionSearch, ScanMetrics metrics) {
+		this(threads, correctionSearch, metrics, null);
+	}
+
+	/*
+	 * cache can be null to scan every entry.
+	 */
+	OcrDemo(int threads, CorrectionSearch correctionSearch, ScanMetrics metrics, ResultCache cache) {
+		this(threads, correctionSearch, metrics, cache, new RejectLog(System.err));
+	}
+
+	/*
+	 * rejects records lines skipped when scanning files with the -tolerant option.
+	 */
+	OcrDemo(int threads, CorrectionSearch correctionSearch, ScanMetrics metrics, ResultCache cache, RejectLog rejects) {
+		this(threads, correctionSearch, metrics, cache, rejects, Layout.DEFAULT, false);
+	}
+
+	/*
+	 * Numbers are laid out as given, or when detectLayout is set, have as many digits as fit in the 
+	 * first line of the input. Detected layouts keep the cell width and modulus of the layout.
+	 */
+	OcrDemo(int threads, CorrectionSearch correctionSearch, ScanMetrics metrics, ResultCache cache, RejectLog rejects, 
+			Layout layout, boolean detectLayout) {
+		if(threads < 1)
+			throw new IllegalArgumentException("Number of threads must be at least 1");
+		this.threads = threads;
+		this.metrics = metrics;
+		this.rejects = rejects;
+		this.layout = layout;
+		this.detectLayout = detectLayout;
+		init(correctionSearch, cache);
+	}
+
+	private void init(CorrectionSearch correctionSearch, ResultCache cache) {
+		this.correctionSearch = correctionSearch;
+		this.cache = cache;
+		scanner = new SevenSegmentScanner(layout, correctionSearch, metrics, cache);
+		if(threads > 1) {
+			workers = Executors.newFixedThreadPool(threads, r -> {
+				Thread t = new Thread(r, "ocr-worker");
+				t.setDaemon(true);
+				return t;
+			});
+		}
 	}
 
 	/*
@@ -36,6 +144,10 @@ public class OcrDemo {
 	 * meet the criteria.
 	 */
 	void verifyLines(int lineStart, List<String> lines) {
+		verifyLines(scanner, lineStart, lines);
+	}
+
+	private static void verifyLines(SevenSegmentScanner scanner, int lineStart, List<String> lines) {
 		for (int i = 0; i < 3; i++) {
 			try {
 				scanner.verifyLine(lines.get(i));
@@ -45,33 +157,127 @@ public class OcrDemo {
 		}
 	}
 
+	/*
+	 * Checks the lines of the entry held in the buffer all at once and verify they meet the criteria.
+	 * Only an invalid line is checked again to find out what is wrong with it.
+	 */
+	void verifyLines(int lineStart, ByteBuffer buffer, int[] entry, int offset) {
+		verifyLines(scanner, lineStart, buffer, entry, offset);
+	}
+
+	private static void verifyLines(SevenSegmentScanner scanner, int lineStart, ByteBuffer buffer, int[] entry, int offset) {
+		int invalid = scanner.firstInvalidLine(buffer, entry, offset);
+		if(invalid >= 0) {
+			try {
+				scanner.verifyLine(buffer, entry[offset + invalid * 2], entry[offset + invalid * 2 + 1]);
+			} catch (InvalidDataException e) {
+				throw new RuntimeException(String.format("Error scanning line %s", lineStart + invalid), e);
+			}
+		}
+	}
+
 	/*
 	 * Scan input file and generate results.
 	 */
 	public List<ScanResult> scanFile(String path,Set<String> options) throws IOException {
-		return scan(new FileReader(path),options);
+		List<ScanResult> results = new ArrayList<>();
+		scanFile(path, options, results::add);
+		return results;
+	}
+	
+	/*
+	 * Scan input file and hand over each result to the consumer as soon as its entry is scanned.
+	 * File is read through memory mapped buffers, and entries are scanned straight from the bytes. 
+	 * With the -tolerant option, lines that can not be part of an entry are recorded as rejected 
+	 * and skipped instead of failing the scan.
+	 * Files that can not be mapped, such as pipes, are read as a stream instead.
+	 */
+	public void scanFile(String path,Set<String> options, Consumer<ScanResult> consumer) throws IOException {
+		scanFile(path, options, consumer, null, NO_PROGRESS);
+	}
+
+	/*
+	 * Same as above, starting from the checkpoint if one is given instead of the start of the file.
+	 * Progress is reported after every entry, or after every batch when scanning in parallel.
+	 */
+	void scanFile(String path,Set<String> options, Consumer<ScanResult> consumer, Checkpoint from, 
+			ScanProgress progress) throws IOException {
+		if(!Files.isRegularFile(Paths.get(path))) {
+			scanStream(path, options, consumer, from, progress);
+			return;
+		}
+		boolean needVerification = options.contains("-verify");
+		boolean shouldAttemptFix = options.contains("-fix");
+		SevenSegmentScanner fileScanner = detectLayout ? scannerFor(MappedEntryReader.firstLineLength(Paths.get(path))) : scanner;
+		try (MappedEntryReader reader = options.contains("-tolerant") ? 
+				new MappedEntryReader(Paths.get(path), fileScanner.getLayout(), (lineNumber, reason, line) -> {
+					metrics.recordReject();
+					rejects.reject(path, lineNumber, reason, line);
+				}) : new MappedEntryReader(Paths.get(path))) {
+			long entries = 0;
+			if(from != null) {
+				reader.seek(from.getInputOffset(), from.getLineNumber());
+				entries = from.getEntries();
+			}
+			if(workers != null) {
+				scanParallel(fileScanner, reader, needVerification, shouldAttemptFix, consumer, entries, progress);
+			} else {
+				long start = metrics.start();
+				while (reader.next()) {
+					metrics.record(ScanMetrics.Stage.READ, start);
+					consumer.accept(scanEntry(fileScanner, reader.lineNumber(), reader.buffer(), reader.entry(), 0, 
+							needVerification, shouldAttemptFix));
+					progress.reached(reader.offset(), reader.nextLineNumber(), ++entries);
+					start = metrics.start();
+				}
+			}
+		}
 	}
 	
+	/*
+	 * Scans a file that is not a regular file, such as a pipe, which has no size to map and can only be 
+	 * read once, so it can not be scanned tolerantly or from a checkpoint.
+	 */
+	private void scanStream(String path,Set<String> options, Consumer<ScanResult> consumer, Checkpoint from, 
+			ScanProgress progress) throws IOException {
+		if(options.contains("-tolerant"))
+			throw new IOException(String.format("%s is not a regular file and can not be scanned tolerantly", path));
+		if(from != null || progress != NO_PROGRESS)
+			throw new IOException(String.format("%s is not a regular file and can not be checkpointed", path));
+		scan(new InputStreamReader(Files.newInputStream(Paths.get(path))), options, consumer);
+	}
+
 	/*
 	 * Scan number from the input stream.
 	 */
 	List<ScanResult> scan(InputStreamReader inStreamReader,Set<String> options) throws IOException {
-		BufferedReader reader = new BufferedReader(inStreamReader);
 		List<ScanResult> results = new ArrayList<>();
-		String line1 = null;
-		int lineNumber = 1;
+		scan(inStreamReader, options, results::add);
+		return results;
+	}
+	
+	/*
+	 * Scan number from the input stream one entry at a time. Results are not retained, 
+	 * so memory used is the same regardless of the input size.
+	 */
+	void scan(InputStreamReader inStreamReader,Set<String> options, Consumer<ScanResult> consumer) throws IOException {
+		BufferedReader reader = new BufferedReader(inStreamReader);
 		boolean needVerification = options.contains("-verify");
 		boolean shouldAttemptFix = options.contains("-fix");
 		try {
-			while ((line1 = reader.readLine()) != null) {
-				String line2 = reader.readLine();
-				String line3 = reader.readLine();
-				// skip the next line
-				reader.readLine();
-				List<String> lines = Arrays.asList(line1, line2, line3);
-				verifyLines(lineNumber, lines);
-				results.add(scanner.scanLines(lines, needVerification, shouldAttemptFix));
-				lineNumber += 4;
+			SevenSegmentScanner streamScanner = detectLayout ? scannerFor(firstLineLength(reader)) : scanner;
+			if(workers != null) {
+				scanParallel(streamScanner, reader, needVerification, shouldAttemptFix, consumer);
+			} else {
+				List<String> lines;
+				int lineNumber = 1;
+				long start = metrics.start();
+				while ((lines = readEntry(reader)) != null) {
+					metrics.record(ScanMetrics.Stage.READ, start);
+					consumer.accept(scanEntry(streamScanner, lineNumber, lines, needVerification, shouldAttemptFix));
+					lineNumber += 4;
+					start = metrics.start();
+				}
 			}
 		}
 		finally {
@@ -81,34 +287,307 @@ public class OcrDemo {
 
 			}
 		}
-		return results;
 	}
 	
-	private static Set<String> parseParams(String[] args) {
-		return args.length > 1 ? 
-				new HashSet<>(Arrays.asList(args).subList(1, args.length)) :
-					Collections.emptySet();
+	/*
+	 * Reads entries in batches and scans them on the worker threads. Results are handed over
+	 * in input order, and only a limited number of batches are kept in flight.
+	 */
+	private void scanParallel(SevenSegmentScanner scanner, BufferedReader reader, boolean verify, boolean fix, 
+			Consumer<ScanResult> consumer) throws IOException {
+		Deque<Future<List<ScanResult>>> pending = new ArrayDeque<>();
+		try {
+			List<List<String>> batch = new ArrayList<>(BATCH_SIZE);
+			List<String> lines;
+			int lineNumber = 1;
+			int batchStart = lineNumber;
+			long start = metrics.start();
+			while ((lines = readEntry(reader)) != null) {
+				metrics.record(ScanMetrics.Stage.READ, start);
+				batch.add(lines);
+				lineNumber += 4;
+				if(batch.size() == BATCH_SIZE) {
+					pending.add(submitBatch(scanner, batchStart, batch, verify, fix));
+					batch = new ArrayList<>(BATCH_SIZE);
+					batchStart = lineNumber;
+					if(pending.size() >= threads * 2) {
+						awaitBatch(pending.poll()).forEach(consumer);
+					}
+				}
+				start = metrics.start();
+			}
+			if(!batch.isEmpty()) {
+				pending.add(submitBatch(scanner, batchStart, batch, verify, fix));
+			}
+			while(!pending.isEmpty()) {
+				awaitBatch(pending.poll()).forEach(consumer);
+			}
+		} finally {
+			pending.forEach(f -> f.cancel(true));
+		}
+	}
+
+	private Future<List<ScanResult>> submitBatch(SevenSegmentScanner scanner, int lineStart, List<List<String>> batch, 
+			boolean verify, boolean fix) {
+		return workers.submit(() -> {
+			List<ScanResult> results = new ArrayList<>(batch.size());
+			int lineNumber = lineStart;
+			for(List<String> lines : batch) {
+				results.add(scanEntry(scanner, lineNumber, lines, verify, fix));
+				lineNumber += 4;
+			}
+			return results;
+		});
+	}
+
+	/*
+	 * Same as scanning a stream in parallel, batches hold the positions of the entry lines within 
+	 * the mapped buffer. A batch is submitted early if the reader moves to another buffer.
+	 * Progress is reported as each batch is handed over, entries being the number scanned before the first batch.
+	 */
+	private void scanParallel(SevenSegmentScanner scanner, MappedEntryReader reader, boolean verify, boolean fix, 
+			Consumer<ScanResult> consumer, long entries, ScanProgress progress) throws IOException {
+		Deque<Future<List<ScanResult>>> pending = new ArrayDeque<>();
+		//offset, line number and entry count following each pending batch.
+		Deque<long[]> pendingEnds = new ArrayDeque<>();
+		try {
+			int[] batch = new int[BATCH_SIZE * ENTRY_SIZE];
+			int count = 0;
+			int batchStart = 1;
+			ByteBuffer batchBuffer = null;
+			long batchEndOffset = 0;
+			int batchEndLine = 0;
+			long start = metrics.start();
+			while (reader.next()) {
+				metrics.record(ScanMetrics.Stage.READ, start);
+				if(count == BATCH_SIZE || (count > 0 && reader.buffer() != batchBuffer)) {
+					pending.add(submitBatch(scanner, batchStart, batchBuffer, batch, count, verify, fix));
+					pendingEnds.add(new long[] {batchEndOffset, batchEndLine, entries});
+					batch = new int[BATCH_SIZE * ENTRY_SIZE];
+					count = 0;
+					if(pending.size() >= threads * 2) {
+						handOver(pending, pendingEnds, consumer, progress);
+					}
+				}
+				if(count == 0) {
+					batchStart = reader.lineNumber();
+					batchBuffer = reader.buffer();
+				}
+				reader.copyEntry(batch, count++ * ENTRY_SIZE);
+				batchEndOffset = reader.offset();
+				batchEndLine = reader.nextLineNumber();
+				entries++;
+				start = metrics.start();
+			}
+			if(count > 0) {
+				pending.add(submitBatch(scanner, batchStart, batchBuffer, batch, count, verify, fix));
+				pendingEnds.add(new long[] {batchEndOffset, batchEndLine, entries});
+			}
+			while(!pending.isEmpty()) {
+				handOver(pending, pendingEnds, consumer, progress);
+			}
+		} finally {
+			pending.forEach(f -> f.cancel(true));
+		}
+	}
+
+	private Future<List<ScanResult>> submitBatch(SevenSegmentScanner scanner, int lineStart, ByteBuffer buffer, int[] batch, 
+			int count, boolean verify, boolean fix) {
+		return workers.submit(() -> {
+			List<ScanResult> results = new ArrayList<>(count);
+			for(int i = 0; i < count; i++) {
+				results.add(scanEntry(scanner, lineStart + i * 4, buffer, batch, i * ENTRY_SIZE, verify, fix));
+			}
+			return results;
+		});
+	}
+
+	private void handOver(Deque<Future<List<ScanResult>>> pending, Deque<long[]> pendingEnds, Consumer<ScanResult> consumer, 
+			ScanProgress progress) throws IOException {
+		awaitBatch(pending.poll()).forEach(consumer);
+		long[] end = pendingEnds.poll();
+		progress.reached(end[0], (int) end[1], end[2]);
+	}
+
+	private List<ScanResult> awaitBatch(Future<List<ScanResult>> future) throws IOException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while scanning", e);
+		} catch (ExecutionException e) {
+			if(e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			throw new RuntimeException(e.getCause());
+		}
+	}
+
+	private ScanResult scanEntry(SevenSegmentScanner scanner, int lineNumber, List<String> lines, boolean verify, boolean fix) {
+		long start = metrics.start();
+		verifyLines(scanner, lineNumber, lines);
+		metrics.record(ScanMetrics.Stage.VALIDATE, start);
+		return scanner.scanLines(lines, verify, fix);
+	}
+
+	private ScanResult scanEntry(SevenSegmentScanner scanner, int lineNumber, ByteBuffer buffer, int[] entry, int offset, 
+			boolean verify, boolean fix) {
+		long start = metrics.start();
+		verifyLines(scanner, lineNumber, buffer, entry, offset);
+		metrics.record(ScanMetrics.Stage.VALIDATE, start);
+		return scanner.scanLines(buffer, entry[offset], entry[offset + 2], entry[offset + 4], verify, fix);
+	}
+
+	/*
+	 * Returns the scanner for lines of the given length, the length being of the first line of an input.
+	 */
+	private SevenSegmentScanner scannerFor(int lineLength) {
+		Layout detected = layout.forLineLength(lineLength);
+		if(detected.equals(layout))
+			return scanner;
+		return scanners.computeIfAbsent(detected, l -> new SevenSegmentScanner(l, correctionSearch, metrics, cache));
+	}
+
+	/*
+	 * Returns the length of the first line of the stream without consuming it, or -1 if there is no
+	 * line or it is too long to be part of an entry.
+	 */
+	private static int firstLineLength(BufferedReader reader) throws IOException {
+		reader.mark(MAX_FIRST_LINE);
+		int length = 0;
+		int c = reader.read();
+		while(c >= 0 && c != '\n' && c != '\r' && length < MAX_FIRST_LINE - 1) {
+			length++;
+			c = reader.read();
+		}
+		reader.reset();
+		return c >= 0 && length == MAX_FIRST_LINE - 1 || c < 0 && length == 0 ? -1 : length;
+	}
+
+	/*
+	 * Reads the three lines of the next entry, skipping the blank line that follows them.
+	 */
+	private List<String> readEntry(BufferedReader reader) throws IOException {
+		String line1 = reader.readLine();
+		if(line1 == null)
+			return null;
+		String line2 = reader.readLine();
+		String line3 = reader.readLine();
+		// skip the next line
+		reader.readLine();
+		return Arrays.asList(line1, line2, line3);
+	}
+
+	@Override
+	public void close() {
+		if(workers != null) {
+			workers.shutdownNow();
+		}
+	}
+
+	/*
+	 * Returns the options specified, mapped to their value if they take one.
+	 * Paths found are added to inputs.
+	 */
+	private static Map<String, String> parseParams(String[] args, List<String> inputs) {
+		Map<String, String> params = new HashMap<>();
+		for(int i = 0; i < args.length; i++) {
+			String param = args[i];
+			String value = null;
+			if(!param.startsWith("-")) {
+				//files to scan
+				inputs.add(param);
+				continue;
+			}
+			if(VALUE_OPTIONS.contains(param) && i + 1 < args.length) {
+				value = args[++i];
+			}
+			params.put(param, value);
+		}
+		return params;
     }
 	
 	/*
 	 * Verify command line parameters are as expected.
 	 */
-	private static boolean verifyParams(Set<String> params) {
-		for(String param : params) {
-			if(!SUPPORTED_OPTIONS.contains(param)) {
-				System.out.println(String.format("Error: Unknown option %s", param));
+	private static boolean verifyParams(Map<String, String> params) {
+		for(Map.Entry<String, String> param : params.entrySet()) {
+			if(VALUE_OPTIONS.contains(param.getKey())) {
+				if(param.getValue() == null) {
+					System.out.println(String.format("Error: Missing value for option %s", param.getKey()));
+					return false;
+				}
+			} else if(!SUPPORTED_OPTIONS.contains(param.getKey())) {
+				System.out.println(String.format("Error: Unknown option %s", param.getKey()));
 				return false;
 			}
 		}
 		return true;
 	}
 	
+	/*
+	 * Returns the positive number value of the option, or the default value if it is not specified.
+	 */
+	private static int intParam(Map<String, String> params, String option, int defaultValue) {
+		if(!params.containsKey(option))
+			return defaultValue;
+		try {
+			int value = Integer.parseInt(params.get(option));
+			if(value > 0)
+				return value;
+		} catch (NumberFormatException e) {
+		}
+		throw new IllegalArgumentException(String.format("Invalid value %s for option %s", params.get(option), option));
+	}
+
+	/*
+	 * Returns the layout given by the options, account numbers unless specified. Number of digits
+	 * defaults to the number of weights when weights are given.
+	 */
+	private static Layout layoutParam(Map<String, String> params) {
+		int cellWidth = intParam(params, "-cell-width", DigitDecoder.SEGMENTS_PER_LINE);
+		int modulus = intParam(params, "-modulus", Layout.DEFAULT_MODULUS);
+		if(!params.containsKey("-weights"))
+			return Layout.of(intParam(params, "-digits", Layout.DEFAULT_DIGIT_COUNT), cellWidth, modulus);
+		String[] values = params.get("-weights").split(",");
+		int[] weights = new int[values.length];
+		try {
+			for(int i = 0; i < values.length; i++) {
+				weights[i] = Integer.parseInt(values[i].trim());
+			}
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException(String.format("Invalid value %s for option %s", params.get("-weights"), "-weights"));
+		}
+		return new Layout(intParam(params, "-digits", weights.length), cellWidth, weights, modulus);
+	}
+
 	private static void printUsage() {
-		System.out.println(" Usage: OcrDemo <path to file> [options]");	
-		System.out.println(" where options can be - ");
+		System.out.println(" Usage: OcrDemo <path to file> [more paths] [options]");	
+		System.out.println("    or OcrDemo -server <port> [options]");
+		System.out.println(" where paths can be files, directories, glob patterns or @<path to file listing files>");
+		System.out.println(" and options can be - ");
 		System.out.println(" -verify - to verify scanned account numbers with checksum");
 		System.out.println(" -detailed - to print details, account number with any error status");
 		System.out.println(" -fix - will try to fix sacn errors");
+		System.out.println(" -threads <n> - to scan using n threads");
+		System.out.println(" -digits <n> - number of digits in each number, detected from the length of the first line by default");
+		System.out.println(" -cell-width <n> - number of characters taken by each digit, default is 3");
+		System.out.println(" -weights <w1,w2,...> - checksum weight of each digit, default is n down to 1 for n digits");
+		System.out.println(" -modulus <n> - numbers pass checksum if their weighted sum is a multiple of n, default is 11");
+		System.out.println(" -glyphs <hex|path to file> - to scan hexadecimal or other glyphs read from the file as text, with no checksum");
+		System.out.println(" -tolerant - to skip lines that can not be read as part of an account number instead of failing");
+		System.out.println(" -rejects <path to file> - to scan tolerantly and write the skipped lines to the file");
+		System.out.println(" -format <text|csv|jsonl|binary> - format of the output, default is text");
+		System.out.println(" -out <path to file> - to write output to the file instead of the console");
+		System.out.println(" -out-dir <path to directory> - to write output of each scanned file to the directory");
+		System.out.println(" -fix-depth <n> - number of digits that can be fixed in an account number, default is 1");
+		System.out.println(" -fix-budget <n> - maximum number of steps spent searching fixes for an account number");
+		System.out.println(" -cache <n> - to reuse results of up to n recently scanned account numbers");
+		System.out.println(" -checkpoint <path to file> - to record progress of the scan to the file, output must be written with -out");
+		System.out.println(" -checkpoint-interval <seconds> - time between checkpoints, default is 10");
+		System.out.println(" -resume - to carry on the scan from the checkpoint file if there is one");
+		System.out.println(" -metrics <path to file> - to write scan metrics to the file in JSON format");
+		System.out.println(" -metrics-interval <seconds> - to write metrics periodically while scanning");
+		System.out.println(" -server <port> - to keep running and scan entries posted to http://localhost:<port>/scan");
 	}
 
 	public static void main(String[] args) {
@@ -117,16 +596,100 @@ public class OcrDemo {
 			printUsage();
 			System.exit(0);
 		} 
-		Set<String> params = parseParams(args);
+		List<String> inputs = new ArrayList<>();
+		Map<String, String> params = parseParams(args, inputs);
 		if(!verifyParams(params)) {
 			printUsage();
 			System.exit(0);
 		}
-		OcrDemo ocrDemo = new OcrDemo();
+		boolean server = params.containsKey("-server");
+		if (inputs.isEmpty() && !server) {
+			System.out.println("Error: No file provided");
+			printUsage();
+			System.exit(0);
+		}
+		if(params.containsKey("-glyphs")) {
+			scanGlyphs(inputs, params);
+			return;
+		}
+		boolean batch = !server && (BatchScanner.isBatch(inputs) || params.containsKey("-out-dir"));
+		int threads = 1;
+		int port = 0;
+		int metricsInterval = 0;
+		OutputWriter.Format format = OutputWriter.Format.TEXT;
+		CorrectionSearch correctionSearch = null;
+		ResultCache cache = null;
+		Layout layout = null;
 		try {
-			List<ScanResult> results = ocrDemo.scanFile(args[0],params);
-			OutputWriter outWriter = new OutputWriter(params.contains("-verify"), params.contains("-detailed"));
-			outWriter.print(results);
+			threads = intParam(params, "-threads", batch || server ? Runtime.getRuntime().availableProcessors() : 1);
+			port = intParam(params, "-server", 0);
+			correctionSearch = new CorrectionSearch(intParam(params, "-fix-depth", CorrectionSearch.DEFAULT_MAX_EDITS),
+					intParam(params, "-fix-budget", CorrectionSearch.DEFAULT_BUDGET));
+			metricsInterval = intParam(params, "-metrics-interval", 0);
+			if(params.containsKey("-cache"))
+				cache = new ResultCache(intParam(params, "-cache", 0));
+			if(params.containsKey("-format"))
+				format = OutputWriter.Format.of(params.get("-format"));
+			layout = layoutParam(params);
+			if(params.containsKey("-checkpoint") || params.containsKey("-resume"))
+				verifyCheckpointParams(params, format, batch || server);
+		} catch (IllegalArgumentException e) {
+			System.out.println("Error: " + e.getMessage());
+			printUsage();
+			System.exit(0);
+		}
+		ScanMetrics metrics = params.containsKey("-metrics") ? new ScanMetrics() : ScanMetrics.DISABLED;
+		ScheduledExecutorService metricsWriter = metricsInterval > 0 && metrics.isEnabled() ? 
+				startMetricsWriter(metrics, Paths.get(params.get("-metrics")), metricsInterval) : null;
+		if(params.containsKey("-rejects"))
+			params.put("-tolerant", null);
+		//files and requests are scanned in parallel in batch and server modes instead of entries.
+		//rejects found before the checkpoint are kept along with the output written before it.
+		try (RejectLog rejects = params.containsKey("-rejects") ? new RejectLog(Paths.get(params.get("-rejects")), isResuming(params)) 
+					: new RejectLog(System.err);
+				OcrDemo ocrDemo = new OcrDemo(batch || server ? 1 : threads, correctionSearch, metrics, cache, rejects, layout,
+						!params.containsKey("-digits") && !params.containsKey("-weights"))) {
+			if(server) {
+				serve(ocrDemo, port, params, format, threads, metrics);
+			} else if(batch) {
+				scanBatch(ocrDemo, inputs, params, format, threads);
+			} else {
+				scanFile(ocrDemo, inputs.get(0), params, format, metrics);
+			}
+			if(rejects.count() > 0)
+				System.err.println(String.format("%s lines rejected", rejects.count()));
+		} catch (IOException | UncheckedIOException e) {
+			System.out.println("Error while scanning file - "  + e.getMessage());
+			e.printStackTrace(System.err);
+			System.exit(1);
+		} finally {
+			if(metricsWriter != null)
+				metricsWriter.shutdownNow();
+			writeMetrics(metrics, params.get("-metrics"));
+		}
+	}
+
+	/*
+	 * Scans a single file of glyphs, writing the text of each entry.
+	 */
+	private static void scanGlyphs(List<String> inputs, Map<String, String> params) {
+		GlyphScanner glyphScanner = null;
+		try {
+			for(String option : params.keySet()) {
+				if(!GLYPH_OPTIONS.contains(option))
+					throw new IllegalArgumentException(String.format("Option %s can not be used with -glyphs", option));
+			}
+			if(inputs.size() != 1 || BatchScanner.isBatch(inputs))
+				throw new IllegalArgumentException("Option -glyphs can only be used when scanning a single file");
+			glyphScanner = new GlyphScanner(GlyphScanner.glyphSetOf(params.get("-glyphs")), 
+					intParam(params, "-cell-width", DigitDecoder.SEGMENTS_PER_LINE));
+		} catch (IllegalArgumentException | IOException e) {
+			System.out.println("Error: " + e.getMessage());
+			printUsage();
+			System.exit(0);
+		}
+		try (OutputStream outFile = params.containsKey("-out") ? Files.newOutputStream(Paths.get(params.get("-out"))) : null) {
+			glyphScanner.scanFile(inputs.get(0), new BufferedOutputStream(outFile != null ? outFile : System.out));
 		} catch (IOException e) {
 			System.out.println("Error while scanning file - "  + e.getMessage());
 			e.printStackTrace(System.err);
@@ -134,5 +697,143 @@ public class OcrDemo {
 		}
 	}
 
+	/*
+	 * Checkpoints can only be taken of a single file written to an output file, grouped output
+	 * keeping invalid numbers aside until the end.
+	 */
+	private static void verifyCheckpointParams(Map<String, String> params, OutputWriter.Format format, boolean manyFiles) {
+		if(!params.containsKey("-checkpoint"))
+			throw new IllegalArgumentException("Option -resume needs -checkpoint");
+		if(!params.containsKey("-out"))
+			throw new IllegalArgumentException("Option -checkpoint needs -out");
+		if(manyFiles)
+			throw new IllegalArgumentException("Option -checkpoint can only be used when scanning a single file");
+		if(format == OutputWriter.Format.TEXT && params.containsKey("-verify") && !params.containsKey("-detailed"))
+			throw new IllegalArgumentException("Option -checkpoint can not be used with grouped output, use -detailed or another -format");
+		intParam(params, "-checkpoint-interval", DEFAULT_CHECKPOINT_INTERVAL);
+	}
+
+	/*
+	 * Scans a single file. With -checkpoint, progress is recorded to the checkpoint file while scanning 
+	 * and the file is deleted once the scan completes. With -resume, the scan starts from the checkpoint 
+	 * and the output file is cut back to where it was at the checkpoint.
+	 */
+	private static void scanFile(OcrDemo ocrDemo, String path, Map<String, String> params, OutputWriter.Format format, 
+			ScanMetrics metrics) throws IOException {
+		boolean group = params.containsKey("-verify");
+		boolean detailed = params.containsKey("-detailed");
+		String input = Paths.get(path).toAbsolutePath().normalize().toString();
+		Path checkpointFile = params.containsKey("-checkpoint") ? Paths.get(params.get("-checkpoint")) : null;
+		Checkpoint from = null;
+		if(isResuming(params)) {
+			from = Checkpoint.read(checkpointFile);
+			if(!input.equals(from.getInput()))
+				throw new IOException(String.format("Checkpoint %s is of another file %s", checkpointFile, from.getInput()));
+		}
+		try (FileChannel outFile = params.containsKey("-out") ? openOutput(params.get("-out"), from) : null;
+				OutputWriter outWriter = outFile != null ? new OutputWriter(format, group, detailed, outFile) 
+						: new OutputWriter(format, group, detailed, System.out)) {
+			if(from != null)
+				outWriter.resume();
+			ScanProgress progress = checkpointFile == null ? NO_PROGRESS : new Checkpoint.Recorder(input, checkpointFile, 
+					intParam(params, "-checkpoint-interval", DEFAULT_CHECKPOINT_INTERVAL), outWriter, outFile);
+			ocrDemo.scanFile(path, params.keySet(), r -> {
+				long start = metrics.start();
+				outWriter.write(r);
+				metrics.record(ScanMetrics.Stage.WRITE, start);
+			}, from, progress);
+		}
+		if(checkpointFile != null)
+			Files.deleteIfExists(checkpointFile);
+	}
+
+	/*
+	 * Returns true if the scan carries on from a checkpoint, which is when there is a checkpoint file to resume from.
+	 */
+	private static boolean isResuming(Map<String, String> params) {
+		return params.containsKey("-resume") && params.containsKey("-checkpoint") && Files.exists(Paths.get(params.get("-checkpoint")));
+	}
+
+	private static FileChannel openOutput(String path) throws IOException {
+		return FileChannel.open(Paths.get(path), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+	}
+
+	/*
+	 * Opens the output file to carry on from the checkpoint, dropping anything written after it.
+	 */
+	private static FileChannel openOutput(String path, Checkpoint from) throws IOException {
+		if(from == null)
+			return openOutput(path);
+		FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.WRITE);
+		if(channel.size() < from.getOutputPosition()) {
+			channel.close();
+			throw new IOException(String.format("Output file %s is shorter than at the checkpoint", path));
+		}
+		channel.truncate(from.getOutputPosition());
+		channel.position(from.getOutputPosition());
+		return channel;
+	}
+
+	/*
+	 * Scans all files found from the inputs, threads being the number of files scanned at a time. 
+	 */
+	private static void scanBatch(OcrDemo ocrDemo, List<String> inputs, Map<String, String> params, OutputWriter.Format format, 
+			int threads) throws IOException {
+		Path outDir = params.containsKey("-out-dir") ? Files.createDirectories(Paths.get(params.get("-out-dir"))) : null;
+		int failed;
+		try (BatchScanner batchScanner = new BatchScanner(ocrDemo, threads, format);
+				PrintStream out = params.containsKey("-out") ? 
+						new PrintStream(Channels.newOutputStream(openOutput(params.get("-out")))) : null) {
+			failed = batchScanner.scan(BatchScanner.resolveInputs(inputs), params.keySet(), outDir, out != null ? out : System.out);
+		}
+		if(failed > 0) {
+			throw new IOException(String.format("%s files could not be scanned", failed));
+		}
+	}
+
+	/*
+	 * Scans entries posted to the server until the process is stopped, threads being the number
+	 * of requests scanned at a time.
+	 */
+	private static void serve(OcrDemo ocrDemo, int port, Map<String, String> params, OutputWriter.Format format, int threads, 
+			ScanMetrics metrics) throws IOException {
+		ScanServer server = new ScanServer(ocrDemo, params.keySet(), format, port, threads);
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			server.close();
+			ocrDemo.close();
+			writeMetrics(metrics, params.get("-metrics"));
+		}));
+		server.start();
+		System.out.println(String.format("Scanning entries posted to http://localhost:%s%s", server.getPort(), ScanServer.SCAN_PATH));
+		try {
+			Thread.currentThread().join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/*
+	 * Writes metrics to the file every interval seconds while scanning.
+	 */
+	private static ScheduledExecutorService startMetricsWriter(ScanMetrics metrics, Path path, int interval) {
+		ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "ocr-metrics");
+			t.setDaemon(true);
+			return t;
+		});
+		executor.scheduleAtFixedRate(() -> writeMetrics(metrics, path.toString()), interval, interval, TimeUnit.SECONDS);
+		return executor;
+	}
+
+	private static void writeMetrics(ScanMetrics metrics, String path) {
+		if(metrics.isEnabled()) {
+			try {
+				metrics.writeTo(Paths.get(path));
+			} catch (IOException e) {
+				System.err.println("Error while writing metrics - " + e.getMessage());
+			}
+		}
+	}
+
 	
 }
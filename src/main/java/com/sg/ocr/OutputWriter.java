@@ -1,61 +1,335 @@
 package com.sg.ocr;
 
-import java.util.ArrayList;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.List;
 
 import com.sg.ocr.SevenSegmentScanner.ScanResult;
+import com.sg.ocr.SevenSegmentScanner.Status;
+import com.sg.ocr.fsm.SevenSegmentFSM;
 
 /*
  * A class to format and pretty print scan results.
+ * Results are written as they arrive, so nothing is retained in memory. When grouping, valid numbers
+ * are printed straight away while invalid ones are spilled to a temporary file and appended on close.
+ * Results are encoded straight into a reusable buffer which is written to the channel when full,
+ * so writing allocates nothing per result.
+ * Besides the text format, results can be written as CSV or JSON lines, one result per line with its
+ * status and candidates, or as packed binary records. Grouping and details only apply to text.
  */
-public class OutputWriter {
+public class OutputWriter implements Closeable {
+		/*
+		 * Output formats. A binary record is the account number packed as one 4 bit nibble per digit
+		 * (0xF for an illegal digit) followed by a nibble for the status ordinal, big endian in
+		 * (digits + 2) / 2 bytes, 5 bytes for 9 digits. AMB records are followed by the number of
+		 * candidates as an unsigned varint, 7 bits a byte low bits first with the high bit set on all
+		 * but the last byte, so counts below 128 take one byte, and the candidates packed the same way
+		 * with an OK status.
+		 */
+		enum Format {
+			TEXT, CSV, JSONL, BINARY;
+
+			static Format of(String name) {
+				for(Format format : values()) {
+					if(format.name().equalsIgnoreCase(name))
+						return format;
+				}
+				throw new IllegalArgumentException(String.format("Invalid value %s for option %s", name, "-format"));
+			}
+		}
+
+		private static final int BUFFER_SIZE = 1 << 16;
+		private static final byte[] NEW_LINE = System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
+		private static final String CSV_HEADER = "account_number,status,candidates";
+		private static final int ILLEGAL_NIBBLE = 0xF;
+
+		private final Format format;
 		private final boolean group;
 		private final boolean detailed;
-		
+		private final WritableByteChannel out;
+		//stream under the channel, flushed on close. null when writing to a channel directly.
+		private final OutputStream stream;
+		private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		private boolean started;
+		private Path spillFile;
+		private FileChannel spill;
+		private ByteBuffer spillBuffer;
+
 		OutputWriter(boolean group, boolean detailed) {
+			this(group, detailed, System.out);
+		}
+
+		OutputWriter(boolean group, boolean detailed, OutputStream out) {
+			this(Format.TEXT, group, detailed, out);
+		}
+
+		/*
+		 * Writes to the channel, which is left open on close.
+		 */
+		OutputWriter(boolean group, boolean detailed, WritableByteChannel out) {
+			this(Format.TEXT, group, detailed, out);
+		}
+
+		OutputWriter(Format format, boolean group, boolean detailed, OutputStream out) {
+			this(format, group, detailed, Channels.newChannel(out), out);
+		}
+
+		OutputWriter(Format format, boolean group, boolean detailed, WritableByteChannel out) {
+			this(format, group, detailed, out, null);
+		}
+
+		private OutputWriter(Format format, boolean group, boolean detailed, WritableByteChannel out, OutputStream stream) {
+			this.format = format;
 			this.group = group;
 			this.detailed = detailed;
+			this.out = out;
+			this.stream = stream;
 		}
-	
+
 		void print(List<ScanResult> results) {
-			if(detailed) {
-				System.out.println(detailedOutput(results));
-			} else if(group) {
-				System.out.println(groupOutput(results));
+			results.forEach(this::write);
+			close();
+		}
+
+		/*
+		 * Write a single result.
+		 */
+		void write(ScanResult r) {
+			start();
+			try {
+				if(format != Format.TEXT) {
+					writeRecord(r);
+				} else if(detailed) {
+					putNumber(buffer, out, r.getPackedNumber(), r.getDigitCount());
+					if(r.getStatus() != Status.OK) {
+						put(buffer, out, " ");
+						put(buffer, out, r.getErrorMsg());
+					}
+					newLine(buffer, out);
+				} else if(group && r.getStatus() != Status.OK) {
+					spill(r);
+				} else {
+					putNumber(buffer, out, r.getPackedNumber(), r.getDigitCount());
+					newLine(buffer, out);
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		/*
+		 * Carries on output written by an earlier scan, so the header is not written again.
+		 */
+		void resume() {
+			started = true;
+		}
+
+		/*
+		 * Writes out the buffered output of the results written so far. Grouped invalid numbers are
+		 * only written on close.
+		 */
+		void flush() {
+			try {
+				drain(buffer, out);
+				if(stream != null)
+					stream.flush();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		private void start() {
+			if(!started) {
+				started = true;
+				if(format == Format.CSV) {
+					println(CSV_HEADER);
+				} else if(format == Format.TEXT && group && !detailed) {
+					println("Valid:");
+				}
+			}
+		}
+
+		private void writeRecord(ScanResult r) throws IOException {
+			long[] candidates = r.getPackedCandidates();
+			int digitCount = r.getDigitCount();
+			if(format == Format.BINARY) {
+				putPacked(r.getPackedNumber(), digitCount, r.getStatus());
+				if(r.getStatus() == Status.AMB) {
+					putVarInt(candidates.length);
+					for(long candidate : candidates) {
+						putPacked(candidate, digitCount, Status.OK);
+					}
+				}
+			} else if(format == Format.CSV) {
+				putNumber(buffer, out, r.getPackedNumber(), digitCount);
+				put(buffer, out, ",");
+				put(buffer, out, r.getStatus().name());
+				put(buffer, out, ",");
+				for(int i = 0; i < candidates.length; i++) {
+					if(i > 0)
+						put(buffer, out, ";");
+					putNumber(buffer, out, candidates[i], digitCount);
+				}
+				newLine(buffer, out);
 			} else {
-				System.out.println(simpleOutput(results));
-			}
-		}
-		
-		private String simpleOutput(List<ScanResult> results) {
-			StringBuilder sb = new StringBuilder();
-			results.forEach(r -> sb.append(r.getAccountNumber()).append(System.lineSeparator()));
-			return sb.toString();
-		}
-		
-		private String groupOutput(List<ScanResult> results) {
-	    	List<ScanResult> passed = new ArrayList<>();
-	    	List<ScanResult> failed = new ArrayList<>();
-	    	results.forEach(r -> {
-	    		if(r.getErrorMsg() == null) {
-	    			passed.add(r);
-	    		} else {
-	    			failed.add(r);
-	    		}
-	    	});
-	    	StringBuilder sb = new StringBuilder(); 
-	    	sb.append("Valid:").append(System.lineSeparator());
-	    	passed.forEach(r -> sb.append(r.getAccountNumber()).append(System.lineSeparator()));
-	    	sb.append(System.lineSeparator());
-	    	sb.append("Invalid:").append(System.lineSeparator());
-	    	failed.forEach(r -> sb.append(r.getAccountNumber()).append(System.lineSeparator()));
-	    	return sb.toString();
-	    }
-		
-		private String detailedOutput(List<ScanResult> results) {
-			StringBuilder sb = new StringBuilder();
-			results.forEach(r -> sb.append(r.toString()).append(System.lineSeparator()));
-			return sb.toString();
+				put(buffer, out, "{\"accountNumber\":\"");
+				putNumber(buffer, out, r.getPackedNumber(), digitCount);
+				put(buffer, out, "\",\"status\":\"");
+				put(buffer, out, r.getStatus().name());
+				put(buffer, out, "\",\"candidates\":[");
+				for(int i = 0; i < candidates.length; i++) {
+					put(buffer, out, i > 0 ? ",\"" : "\"");
+					putNumber(buffer, out, candidates[i], digitCount);
+					put(buffer, out, "\"");
+				}
+				put(buffer, out, "]}");
+				newLine(buffer, out);
+			}
+		}
+
+		/*
+		 * Writes the packed digits followed by the status as nibbles, big endian and padded with 
+		 * a leading zero nibble to whole bytes.
+		 */
+		private void putPacked(long packed, int digitCount, Status status) throws IOException {
+			int bytes = (digitCount + 2) / 2;
+			//position of the status nibble, digits being the nibbles before it.
+			int last = bytes * 2 - 1;
+			for(int i = 0; i < bytes; i++) {
+				putByte(nibble(packed, digitCount, status, last, i * 2) << 4 | nibble(packed, digitCount, status, last, i * 2 + 1));
+			}
+		}
+
+		private static int nibble(long packed, int digitCount, Status status, int last, int pos) {
+			if(pos == last)
+				return status.ordinal();
+			int digit = pos - (last - digitCount);
+			return digit < 0 ? 0 : (int) (packed >>> (digitCount - 1 - digit) * 4) & 0xF;
+		}
+
+		private void putVarInt(int value) throws IOException {
+			while((value & ~0x7F) != 0) {
+				putByte(value & 0x7F | 0x80);
+				value >>>= 7;
+			}
+			putByte(value);
+		}
+
+		private void putByte(int b) throws IOException {
+			if(!buffer.hasRemaining())
+				drain(buffer, out);
+			buffer.put((byte) b);
+		}
+
+		private void spill(ScanResult r) throws IOException {
+			if(spill == null) {
+				spillFile = Files.createTempFile("ocr-invalid", ".txt");
+				spill = FileChannel.open(spillFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+				spillBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+			}
+			putNumber(spillBuffer, spill, r.getPackedNumber(), r.getDigitCount());
+			newLine(spillBuffer, spill);
+		}
+
+		private void println(String line) {
+			try {
+				put(buffer, out, line);
+				newLine(buffer, out);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		/*
+		 * Encodes the text into the buffer, writing the buffer out as it fills. Results only hold
+		 * ASCII characters, anything else is written as '?'.
+		 */
+		private static void put(ByteBuffer buffer, WritableByteChannel channel, String text) throws IOException {
+			for(int i = 0; i < text.length(); i++) {
+				if(!buffer.hasRemaining())
+					drain(buffer, channel);
+				char c = text.charAt(i);
+				buffer.put(c < 0x80 ? (byte) c : (byte) '?');
+			}
+		}
+
+		/*
+		 * Encodes the digits of a packed number, an illegal digit being written as '?'.
+		 */
+		private static void putNumber(ByteBuffer buffer, WritableByteChannel channel, long packed, int digitCount) throws IOException {
+			if(buffer.remaining() < digitCount)
+				drain(buffer, channel);
+			for(int shift = (digitCount - 1) * 4; shift >= 0; shift -= 4) {
+				int digit = (int) (packed >>> shift) & 0xF;
+				buffer.put(digit == ILLEGAL_NIBBLE ? (byte) SevenSegmentFSM.ERROR_DIGIT.charValue() : (byte) ('0' + digit));
+			}
+		}
+
+		private static void newLine(ByteBuffer buffer, WritableByteChannel channel) throws IOException {
+			if(buffer.remaining() < NEW_LINE.length)
+				drain(buffer, channel);
+			buffer.put(NEW_LINE);
+		}
+
+		private static void drain(ByteBuffer buffer, WritableByteChannel channel) throws IOException {
+			buffer.flip();
+			while(buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			buffer.clear();
+		}
+
+		/*
+		 * Completes the output, appending the invalid group if any.
+		 */
+		@Override
+		public void close() {
+			start();
+			try {
+				if(format == Format.TEXT) {
+					if(group && !detailed) {
+						newLine(buffer, out);
+						println("Invalid:");
+						if(spill != null) {
+							drain(buffer, out);
+							drain(spillBuffer, spill);
+							for(long pos = 0, size = spill.size(); pos < size; ) {
+								pos += spill.transferTo(pos, size - pos, out);
+							}
+						}
+					}
+					newLine(buffer, out);
+				}
+				drain(buffer, out);
+				if(stream != null)
+					stream.flush();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			} finally {
+				deleteSpill();
+			}
+		}
+
+		private void deleteSpill() {
+			if(spillFile != null) {
+				try {
+					spill.close();
+					Files.deleteIfExists(spillFile);
+				} catch (IOException e) {
+				}
+				spillFile = null;
+				spill = null;
+			}
 		}
 
 }
@@ -0,0 +1,64 @@
+package com.sg.ocr;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/*
+ * Records lines rejected while scanning tolerantly, one tab separated line per rejected line
+ * holding the file, line number, reason and the line itself. Can be shared by files scanned
+ * in parallel.
+ */
+class RejectLog implements Closeable {
+	private final PrintStream out;
+	private final boolean ownsOut;
+	private long count;
+
+	RejectLog(Path path) throws IOException {
+		this(path, false);
+	}
+
+	/*
+	 * Writes to the file, adding to the lines already in it if append is true, as when carrying on
+	 * a scan from a checkpoint.
+	 */
+	RejectLog(Path path, boolean append) throws IOException {
+		this(new PrintStream(new BufferedOutputStream(append ? 
+				Files.newOutputStream(path, StandardOpenOption.CREATE, StandardOpenOption.APPEND) : Files.newOutputStream(path)), 
+				false, "UTF-8"), true);
+	}
+
+	/*
+	 * Writes to the stream, which is left open on close.
+	 */
+	RejectLog(PrintStream out) {
+		this(out, false);
+	}
+
+	private RejectLog(PrintStream out, boolean ownsOut) {
+		this.out = out;
+		this.ownsOut = ownsOut;
+	}
+
+	synchronized void reject(String file, int lineNumber, String reason, String line) {
+		count++;
+		out.println(String.format("%s\t%s\t%s\t%s", file, lineNumber, reason, line));
+	}
+
+	synchronized long count() {
+		return count;
+	}
+
+	@Override
+	public synchronized void close() {
+		if(ownsOut) {
+			out.close();
+		} else {
+			out.flush();
+		}
+	}
+}
@@ -0,0 +1,68 @@
+package com.sg.ocr;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.sg.ocr.SevenSegmentScanner.ScanResult;
+
+/*
+ * Bounded cache of scan results keyed by the digit codes of the scanned lines, so repeated
+ * numbers skip verifying and the fix search. Keys hold one char per digit code, which identifies
+ * the lines exactly, followed by a char for the scan options.
+ * Entries are evicted least recently used first. Large caches are split into segments each locked
+ * on its own so threads scanning different numbers rarely wait on each other, recency then being
+ * tracked within a segment.
+ */
+class ResultCache {
+	private static final int SEGMENTS = 16;
+	//smaller caches are kept in one segment so recency is tracked over all entries.
+	private static final int MIN_SEGMENTED_CAPACITY = 1024;
+
+	private final Segment[] segments;
+
+	ResultCache(int capacity) {
+		if(capacity < 1)
+			throw new IllegalArgumentException("Cache size must be at least 1");
+		segments = new Segment[capacity < MIN_SEGMENTED_CAPACITY ? 1 : SEGMENTS];
+		for(int i = 0; i < segments.length; i++) {
+			segments[i] = new Segment((capacity + segments.length - 1) / segments.length);
+		}
+	}
+
+	/*
+	 * Returns the cached result for the key or null if there isn't one.
+	 */
+	ScanResult get(String key) {
+		Segment segment = segmentOf(key);
+		synchronized (segment) {
+			return segment.get(key);
+		}
+	}
+
+	void put(String key, ScanResult result) {
+		Segment segment = segmentOf(key);
+		synchronized (segment) {
+			segment.put(key, result);
+		}
+	}
+
+	private Segment segmentOf(String key) {
+		int hash = key.hashCode();
+		return segments[((hash ^ (hash >>> 16)) & 0x7fffffff) % segments.length];
+	}
+
+	private static class Segment extends LinkedHashMap<String, ScanResult> {
+		private static final long serialVersionUID = 1L;
+		private final int capacity;
+
+		Segment(int capacity) {
+			super(16, 0.75f, true);
+			this.capacity = capacity;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, ScanResult> eldest) {
+			return size() > capacity;
+		}
+	}
+}
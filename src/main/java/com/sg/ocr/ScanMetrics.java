@@ -0,0 +1,210 @@
+package com.sg.ocr;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.sg.ocr.SevenSegmentScanner.ScanResult;
+
+/*
+ * Counters and latency histograms for the stages of a scan, and counts of scan outcomes.
+ * Metrics are safe to update from many threads. A disabled instance does not read the clock,
+ * so instrumented code costs next to nothing when metrics are not asked for.
+ */
+class ScanMetrics {
+	enum Stage { READ, VALIDATE, DECODE, VERIFY, FIX, WRITE }
+
+	static final ScanMetrics DISABLED = new ScanMetrics(false);
+
+	private final boolean enabled;
+	private final long startTime = System.nanoTime();
+	private final Histogram[] stages = new Histogram[Stage.values().length];
+	private final LongAdder valid = new LongAdder();
+	private final LongAdder illegal = new LongAdder();
+	private final LongAdder error = new LongAdder();
+	private final LongAdder ambiguous = new LongAdder();
+	private final LongAdder fixAttempts = new LongAdder();
+	private final LongAdder fixed = new LongAdder();
+	private final LongAdder cacheHits = new LongAdder();
+	private final LongAdder cacheMisses = new LongAdder();
+	private final LongAdder rejected = new LongAdder();
+
+	ScanMetrics() {
+		this(true);
+	}
+
+	private ScanMetrics(boolean enabled) {
+		this.enabled = enabled;
+		for(int i = 0; i < stages.length; i++) {
+			stages[i] = new Histogram();
+		}
+	}
+
+	boolean isEnabled() {
+		return enabled;
+	}
+
+	/*
+	 * Returns the start time for a stage to be recorded.
+	 */
+	long start() {
+		return enabled ? System.nanoTime() : 0;
+	}
+
+	/*
+	 * Records the time taken by a stage since start.
+	 */
+	void record(Stage stage, long start) {
+		if(enabled) {
+			stages[stage.ordinal()].add(System.nanoTime() - start);
+		}
+	}
+
+	/*
+	 * Records a fix attempt, the scanned result and the result after fixing.
+	 */
+	void recordFix(ScanResult scanned, ScanResult fixedResult) {
+		if(enabled) {
+			fixAttempts.increment();
+			if(fixedResult.getStatus() == SevenSegmentScanner.Status.OK && scanned.getStatus() != SevenSegmentScanner.Status.OK)
+				fixed.increment();
+		}
+	}
+
+	/*
+	 * Records a lookup of the result cache.
+	 */
+	void recordCacheLookup(boolean hit) {
+		if(enabled) {
+			(hit ? cacheHits : cacheMisses).increment();
+		}
+	}
+
+	/*
+	 * Records a line skipped when scanning tolerantly.
+	 */
+	void recordReject() {
+		if(enabled) {
+			rejected.increment();
+		}
+	}
+
+	/*
+	 * Records the outcome of a scanned entry.
+	 */
+	void recordResult(ScanResult result) {
+		if(enabled) {
+			switch(result.getStatus()) {
+			case OK:
+				valid.increment();
+				break;
+			case ILL:
+				illegal.increment();
+				break;
+			case ERR:
+				error.increment();
+				break;
+			default:
+				ambiguous.increment();
+			}
+		}
+	}
+
+	long entries() {
+		return valid.sum() + illegal.sum() + error.sum() + ambiguous.sum();
+	}
+
+	/*
+	 * Returns the metrics as a JSON object.
+	 */
+	String toJson() {
+		long elapsed = System.nanoTime() - startTime;
+		long entries = entries();
+		StringBuilder sb = new StringBuilder();
+		sb.append("{\"elapsedMillis\":").append(elapsed / 1000000);
+		sb.append(",\"entries\":").append(entries);
+		sb.append(",\"entriesPerSecond\":").append(elapsed > 0 ? entries * 1000000000L / elapsed : 0);
+		sb.append(",\"results\":{\"OK\":").append(valid.sum());
+		sb.append(",\"ILL\":").append(illegal.sum());
+		sb.append(",\"ERR\":").append(error.sum());
+		sb.append(",\"AMB\":").append(ambiguous.sum()).append("}");
+		sb.append(",\"fix\":{\"attempts\":").append(fixAttempts.sum());
+		sb.append(",\"fixed\":").append(fixed.sum()).append("}");
+		sb.append(",\"cache\":{\"hits\":").append(cacheHits.sum());
+		sb.append(",\"misses\":").append(cacheMisses.sum()).append("}");
+		sb.append(",\"rejectedLines\":").append(rejected.sum());
+		sb.append(",\"stages\":{");
+		for(Stage stage : Stage.values()) {
+			if(stage.ordinal() > 0)
+				sb.append(",");
+			sb.append("\"").append(stage.name().toLowerCase()).append("\":");
+			stages[stage.ordinal()].appendJson(sb);
+		}
+		sb.append("}}");
+		return sb.toString();
+	}
+
+	/*
+	 * Writes the metrics to the file, replacing the previous content in one move so readers never
+	 * see a partly written file.
+	 */
+	void writeTo(Path file) throws IOException {
+		Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+		Files.write(temp, (toJson() + System.lineSeparator()).getBytes(StandardCharsets.UTF_8));
+		Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/*
+	 * Latency histogram with power of two buckets in nanoseconds.
+	 */
+	static class Histogram {
+		private static final int BUCKETS = 64;
+		private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+		private final LongAdder count = new LongAdder();
+		private final LongAdder total = new LongAdder();
+		private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+		void add(long nanos) {
+			nanos = Math.max(nanos, 0);
+			//bucket i holds values up to 2^i - 1
+			buckets.incrementAndGet(BUCKETS - Long.numberOfLeadingZeros(nanos));
+			count.increment();
+			total.add(nanos);
+			max.accumulate(nanos);
+		}
+
+		long count() {
+			return count.sum();
+		}
+
+		/*
+		 * Returns the upper bound of the bucket holding the given percentile.
+		 */
+		long percentile(double percentile) {
+			long target = (long) Math.ceil(count.sum() * percentile / 100);
+			long seen = 0;
+			for(int i = 0; i < BUCKETS; i++) {
+				seen += buckets.get(i);
+				if(seen >= target && seen > 0)
+					return i == 0 ? 0 : (1L << i) - 1;
+			}
+			return max.get();
+		}
+
+		void appendJson(StringBuilder sb) {
+			long n = count.sum();
+			long sum = total.sum();
+			sb.append("{\"count\":").append(n);
+			sb.append(",\"totalNanos\":").append(sum);
+			sb.append(",\"meanNanos\":").append(n > 0 ? sum / n : 0);
+			sb.append(",\"p50Nanos\":").append(percentile(50));
+			sb.append(",\"p99Nanos\":").append(percentile(99));
+			sb.append(",\"maxNanos\":").append(max.get()).append("}");
+		}
+	}
+}
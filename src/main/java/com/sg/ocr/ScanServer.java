@@ -0,0 +1,140 @@
+package com.sg.ocr;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/*
+ * Keeps a scanner resident and scans entries posted over HTTP on the loopback interface, so the
+ * cost of starting the JVM and building the state machine is paid once rather than per file.
+ * Entries are posted to /scan in the same format as input files. Options are given as query
+ * parameters named as the command line options without the leading dash, e.g. /scan?verify&fix,
+ * and are added to the options the server was started with. An option can be given as =true, or
+ * as =false to turn it off for the request. The response is what the command line prints for the
+ * same input, options and format.
+ */
+class ScanServer implements Closeable {
+	static final String SCAN_PATH = "/scan";
+	private static final Set<String> QUERY_OPTIONS = new HashSet<>(Arrays.asList("verify", "detailed", "fix"));
+
+	private final OcrDemo ocrDemo;
+	private final Set<String> options;
+	private final OutputWriter.Format format;
+	private final HttpServer server;
+	private final ExecutorService handlers;
+
+	/*
+	 * ocrDemo is shared by all requests, threads being the number of requests handled at a time.
+	 * Port 0 picks a free port.
+	 */
+	ScanServer(OcrDemo ocrDemo, Set<String> options, int port, int threads) throws IOException {
+		this(ocrDemo, options, OutputWriter.Format.TEXT, port, threads);
+	}
+
+	ScanServer(OcrDemo ocrDemo, Set<String> options, OutputWriter.Format format, int port, int threads) throws IOException {
+		this.ocrDemo = ocrDemo;
+		this.options = options;
+		this.format = format;
+		this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		this.handlers = Executors.newFixedThreadPool(threads, r -> {
+			Thread t = new Thread(r, "ocr-server");
+			t.setDaemon(true);
+			return t;
+		});
+		server.setExecutor(handlers);
+		server.createContext(SCAN_PATH, this::handle);
+	}
+
+	void start() {
+		server.start();
+	}
+
+	int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		try {
+			if(!"POST".equals(exchange.getRequestMethod())) {
+				respond(exchange, 405, "Error: Entries must be posted to " + SCAN_PATH);
+				return;
+			}
+			Set<String> requestOptions = new HashSet<>(options);
+			String query = exchange.getRequestURI().getQuery();
+			if(query != null && !query.isEmpty()) {
+				for(String param : query.split("&")) {
+					String[] nameValue = param.split("=", 2);
+					String name = nameValue[0];
+					String value = nameValue.length > 1 ? nameValue[1] : "true";
+					if(!QUERY_OPTIONS.contains(name)) {
+						respond(exchange, 400, String.format("Error: Unknown option %s", name));
+						return;
+					}
+					if("true".equalsIgnoreCase(value)) {
+						requestOptions.add("-" + name);
+					} else if("false".equalsIgnoreCase(value)) {
+						requestOptions.remove("-" + name);
+					} else {
+						respond(exchange, 400, String.format("Error: Invalid value %s for option %s", value, name));
+						return;
+					}
+				}
+			}
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			try (OutputWriter outWriter = new OutputWriter(format, requestOptions.contains("-verify"),
+					requestOptions.contains("-detailed"), bytes)) {
+				ocrDemo.scan(new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8), requestOptions, outWriter::write);
+			} catch (RuntimeException e) {
+				respond(exchange, 400, "Error while scanning - " + e.getMessage());
+				return;
+			}
+			respond(exchange, 200, contentType(format), bytes.toByteArray());
+		} finally {
+			exchange.close();
+		}
+	}
+
+	private static void respond(HttpExchange exchange, int status, String message) throws IOException {
+		respond(exchange, status, contentType(OutputWriter.Format.TEXT), (message + System.lineSeparator()).getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static String contentType(OutputWriter.Format format) {
+		switch(format) {
+		case CSV:
+			return "text/csv; charset=utf-8";
+		case JSONL:
+			return "application/x-ndjson; charset=utf-8";
+		case BINARY:
+			return "application/octet-stream";
+		default:
+			return "text/plain; charset=utf-8";
+		}
+	}
+
+	private static void respond(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+		exchange.getResponseHeaders().set("Content-Type", contentType);
+		exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(body);
+		}
+	}
+
+	@Override
+	public void close() {
+		server.stop(0);
+		handlers.shutdownNow();
+	}
+}
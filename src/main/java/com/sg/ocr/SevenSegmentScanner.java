@@ -1,32 +1,64 @@
 package com.sg.ocr;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.List;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
+import com.sg.ocr.fsm.DigitDecoder;
 import com.sg.ocr.fsm.FSMBuilder;
 import com.sg.ocr.fsm.SevenSegmentFSM;
+import com.sg.ocr.fsm.StateGraph;
 
 /*
  * Scanner class for parsing seven segment digits from lines.
+ * Numbers are read and checked as described by the layout the scanner is built for.
+ * Scanner does not hold any per scan state, so an instance can be shared between threads.
  */
 public class SevenSegmentScanner {
-	private static final int CHAR_PER_LINE = 3;
-	private final Pattern ILLEGAL_CHAR_PATTERN = Pattern.compile("[^ |_]");
-	private final String ILLEGAL_NUM = "ILL";
-	private final String ERROR_NUM = "ERR";
-	private final String AMBIGUOUS_NUM = "AMB";
-	
-	private final SevenSegmentFSM ssfsm;
-	private final FSMBuilder dsmBuilder;
+	//most digits every number of which fits in an int.
+	static final int MAX_INT_DIGITS = 9;
+	private final StateGraph graph;
+	private final DigitDecoder decoder;
+	private final CorrectionSearch correctionSearch;
+	private final ScanMetrics metrics;
+	//null when results are not cached.
+	private final ResultCache cache;
+	private final Layout layout;
 	private final int numberOfDigits;
+	private final int cellWidth;
 	
 	SevenSegmentScanner(int nDigits) {
-		numberOfDigits = nDigits;
-		dsmBuilder =  new FSMBuilder();
-		ssfsm = dsmBuilder.buildStateMachineForDigits();
+		this(nDigits, new CorrectionSearch());
+	}
+	
+	SevenSegmentScanner(int nDigits, CorrectionSearch correctionSearch) {
+		this(nDigits, correctionSearch, ScanMetrics.DISABLED);
+	}
+	
+	SevenSegmentScanner(int nDigits, CorrectionSearch correctionSearch, ScanMetrics metrics) {
+		this(nDigits, correctionSearch, metrics, null);
+	}
+	
+	SevenSegmentScanner(int nDigits, CorrectionSearch correctionSearch, ScanMetrics metrics, ResultCache cache) {
+		this(Layout.of(nDigits), correctionSearch, metrics, cache);
+	}
+	
+	SevenSegmentScanner(Layout layout, CorrectionSearch correctionSearch, ScanMetrics metrics, ResultCache cache) {
+		this.layout = layout;
+		numberOfDigits = layout.getDigitCount();
+		cellWidth = layout.getCellWidth();
+		this.correctionSearch = correctionSearch;
+		this.metrics = metrics;
+		this.cache = cache;
+		FSMBuilder dsmBuilder = new FSMBuilder();
+		graph = dsmBuilder.buildGraphForDigits();
+		decoder = dsmBuilder.compile(graph);
+	}
+	
+	Layout getLayout() {
+		return layout;
 	}
 	
 	/**
@@ -48,17 +80,109 @@ public class SevenSegmentScanner {
 	 * Scan full number from the given list of lines.
 	 */
 	public ScanResult scanLines(List<String> lines, boolean verify, boolean fix) {
-		StringBuilder sb = new StringBuilder();
-		for(int i =0; i < numberOfDigits;i++) {
-			sb.append(scanDigit(lines, i));
+		long start = metrics.start();
+		char[] digits = new char[numberOfDigits];
+		int[] codes = new int[numberOfDigits];
+		DigitDecoder.codesOf(lines.get(0), lines.get(1), lines.get(2), cellWidth, codes);
+		decoder.valuesOf(codes, digits);
+		metrics.record(ScanMetrics.Stage.DECODE, start);
+		String key = cacheKey(codes, verify, fix);
+		ScanResult scanResult = cachedResult(key);
+		if(scanResult == null) {
+			Status status = getStatus(digits, verify);
+			scanResult = fixIfNeeded(new ScanResult(status == Status.OK && !keepsLines() ? null : lines, digits, status), fix);
+			cacheResult(key, scanResult);
+		}
+		return scanResult;
+    }
+	
+	/**
+	 * Scan full number from the three lines held in the buffer, given as the start position of 
+	 * each line. Lines are only decoded into strings for numbers with errors.
+	 */
+	public ScanResult scanLines(ByteBuffer buffer, int line1, int line2, int line3, boolean verify, boolean fix) {
+		long start = metrics.start();
+		char[] digits = new char[numberOfDigits];
+		int[] codes = new int[numberOfDigits];
+		DigitDecoder.codesOf(buffer, line1, line2, line3, cellWidth, codes);
+		decoder.valuesOf(codes, digits);
+		metrics.record(ScanMetrics.Stage.DECODE, start);
+		String key = cacheKey(codes, verify, fix);
+		ScanResult scanResult = cachedResult(key);
+		if(scanResult != null)
+			return scanResult;
+		Status status = getStatus(digits, verify);
+		if(status == Status.OK && !keepsLines()) {
+			scanResult = new ScanResult(null, digits, status);
+			metrics.recordResult(scanResult);
+		} else {
+			List<String> lines = Arrays.asList(readLine(buffer, line1), readLine(buffer, line2), readLine(buffer, line3));
+			scanResult = fixIfNeeded(new ScanResult(lines, digits, status), fix);
+		}
+		cacheResult(key, scanResult);
+		return scanResult;
+	}
+	
+	/*
+	 * Returns the cache key made of the digit codes followed by the options, or null if results 
+	 * are not cached or the number has characters that are not known to the decoder.
+	 */
+	private String cacheKey(int[] codes, boolean verify, boolean fix) {
+		if(cache == null)
+			return null;
+		char[] key = new char[numberOfDigits + 1];
+		for(int i = 0; i < numberOfDigits; i++) {
+			if(codes[i] == DigitDecoder.ILLEGAL_CODE)
+				return null;
+			key[i] = (char) codes[i];
+		}
+		key[numberOfDigits] = (char) ((verify ? 1 : 0) | (fix ? 2 : 0));
+		return new String(key);
+	}
+	
+	private ScanResult cachedResult(String key) {
+		if(key == null)
+			return null;
+		ScanResult scanResult = cache.get(key);
+		metrics.recordCacheLookup(scanResult != null);
+		if(scanResult != null)
+			metrics.recordResult(scanResult);
+		return scanResult;
+	}
+	
+	private void cacheResult(String key, ScanResult scanResult) {
+		if(key != null)
+			cache.put(key, scanResult);
+	}
+	
+	/*
+	 * Lines of valid numbers can only be rebuilt from their digits for cells as wide as the digits,
+	 * lines are kept for all numbers otherwise.
+	 */
+	private boolean keepsLines() {
+		return cellWidth != DigitDecoder.SEGMENTS_PER_LINE;
+	}
+	
+	private String readLine(ByteBuffer buffer, int start) {
+		byte[] line = new byte[layout.lineLength()];
+		for(int i = 0; i < line.length; i++) {
+			line[i] = buffer.get(start + i);
 		}
-		ScanResult scanResult = generateScanResult(lines, sb.toString(), verify);
-		if(fix && scanResult.getErrorMsg() != null) {
-			if(scanResult.getErrorMsg().startsWith(ILLEGAL_NUM))
+		return new String(line, StandardCharsets.ISO_8859_1);
+	}
+	
+	private ScanResult fixIfNeeded(ScanResult scanResult, boolean fix) {
+		if(fix && scanResult.getStatus() != Status.OK) {
+			long start = metrics.start();
+			ScanResult scanned = scanResult;
+			if(scanResult.getStatus() == Status.ILL)
 				scanResult = tryFixingForIllegalDigits(scanResult);
-			else if(scanResult.getErrorMsg().startsWith(ERROR_NUM))
+			else if(scanResult.getStatus() == Status.ERR)
 				scanResult = tryFixingForErrorDigits(scanResult);
+			metrics.record(ScanMetrics.Stage.FIX, start);
+			metrics.recordFix(scanned, scanResult);
 		}
+		metrics.recordResult(scanResult);
 		return scanResult;
     }
 	
@@ -66,190 +190,342 @@ public class SevenSegmentScanner {
 	 * Create alternate result by trying to fix error number. 
 	 */
 	ScanResult tryFixingForErrorDigits(ScanResult scanResult) {
-		String accNum = scanResult.getAccountNumber();
-		List<String> alts = new ArrayList<>();
-		for(int i =0; i < numberOfDigits;i++) {
-			final int digitPos = i;
-			alts.addAll(getAlternateDigits(scanResult.getInputLines(), digitPos).stream()
-				.map(alt -> replaceWithAltDigit(accNum,alt,digitPos)).filter(this::checksum).collect(Collectors.toList()));
-		}
-		return checkAndCreateAltResult(scanResult,alts);
-	}
-	
-	
-	private String replaceWithAltDigit(String num, String alt, int pos) {
-		StringBuilder sb = new StringBuilder();
-		sb.append(num.substring(0,pos));
-		sb.append(alt);
-		sb.append(num.substring(pos + 1));
-		return sb.toString();
+		return tryFixing(scanResult);
 	}
 
 	/*
 	 * Create alternate result by trying to fix illegal digits in account number.
-	 * Nothing is done if more than one illegal digit is found in the number. 
+	 * Nothing is done if there are more illegal digits than the number of digits that can be fixed. 
 	 */
 	ScanResult tryFixingForIllegalDigits(ScanResult scanResult) {
-		String accNum = scanResult.getAccountNumber();
-		List<Integer> errorDigits = getErrorDigits(accNum);
-		if(errorDigits.size() > 1) {
-			//only one error allowed.
-			return scanResult;
-		}
-		if(errorDigits.size() == 1) {
-			int altPos = errorDigits.get(0);
-			List<String> altDigits = getAlternateDigits(scanResult.getInputLines(), altPos);
-			//create alternate numbers substituting illegal digit.
-			List<String> altNumbers = altDigits.stream().map(alt -> 
-				replaceWithAltDigit(accNum,alt,altPos)).filter(this::checksum).collect(Collectors.toList());
-			return checkAndCreateAltResult(scanResult,altNumbers);
+		return tryFixing(scanResult);
+	}
+	
+	/*
+	 * Searches for numbers that pass checksum by substituting digits with their alternates. The result
+	 * is left as it is if the search could not be completed within its budget.
+	 */
+	private ScanResult tryFixing(ScanResult scanResult) {
+		String[] alternates = new String[numberOfDigits];
+		for(int i =0; i < numberOfDigits;i++) {
+			alternates[i] = getAlternates(scanResult.getInputLines(), i);
 		}
-		return scanResult;
+		List<String> altNumbers = correctionSearch.search(scanResult.getAccountNumber(), alternates, layout);
+		return altNumbers == null ? scanResult : checkAndCreateAltResult(scanResult,altNumbers);
 	}
 	
 	private ScanResult checkAndCreateAltResult(ScanResult result, List<String> altNumbers) {
 		if(!altNumbers.isEmpty()) {
 			//if more than 1 alternate then don't fix but report it as ambiguous.
 			if(altNumbers.size() > 1) {
-				return new ScanResult(result.getInputLines(), result.getAccountNumber(), 
-						formatAmbigiousMessage(result.getAccountNumber(), altNumbers));
+				long[] candidates = new long[altNumbers.size()];
+				for(int i = 0; i < candidates.length; i++) {
+					candidates[i] = ScanResult.pack(altNumbers.get(i));
+				}
+				return new ScanResult(result.inputLines, result.digits, result.digitCount, Status.AMB, candidates);
 			} 
-			return new ScanResult(result.getInputLines(), altNumbers.get(0), null);
+			return new ScanResult(result.inputLines, altNumbers.get(0).toCharArray(), Status.OK);
 		}
 		return result;
 	}
 	
-	private String formatAmbigiousMessage(String accNum, List<String> altNumbers) {
-		StringBuilder sb = new StringBuilder(accNum);
-		sb.append(" ").append(AMBIGUOUS_NUM).append(" [");
-		altNumbers.forEach(n -> sb.append("'").append(n).append("', "));
-		sb.delete(sb.length() - 2, sb.length());
-		sb.append("]");
-		return sb.toString();
-	}
-	
-	/*
-	 * Returns the list of error digits in the given number.
-	 */
-	private List<Integer> getErrorDigits(String accNum) {
-		List<Integer> errorDigits = new ArrayList<>();
-		for(int i =0; i <numberOfDigits;i++) {
-			if(accNum.charAt(i) == (char)SevenSegmentFSM.ERROR_DIGIT) {
-				errorDigits.add(i);
-			}
-		}
-		return errorDigits;
-	}
-
-	/*
-	 * Scan the nth digit from seven segment strings.
-	 */
-	private String scanDigit(List<String> lines, int nth) {
-		ssfsm.reset();
-		//move through each state for every character for this digit.
-		getDigitSegments(lines, nth).forEach(s -> ssfsm.nextState(s));
-		return ssfsm.getValue();
-	}
-	
 	private List<Character> getDigitSegments(List<String> lines, int nth) {
 		List<Character> segments = new ArrayList<>();
-		int startPos = nth * CHAR_PER_LINE;
+		int startPos = nth * cellWidth;
 		lines.forEach(line -> {
-			line.substring(startPos, startPos + CHAR_PER_LINE).chars()
+			line.substring(startPos, startPos + DigitDecoder.SEGMENTS_PER_LINE).chars()
 			  .forEach(c -> segments.add((char) c));
 		});
 		return segments;
 	}
 	
-	private ScanResult generateScanResult(List<String> lines, String accNum, boolean verify) {
-		String errMsg = null;
-		if(accNum.contains("?")) { 
-			errMsg = ILLEGAL_NUM;
-		} else if(verify && !checksum(accNum)) {
-			errMsg = ERROR_NUM;
+	private Status getStatus(char[] digits, boolean verify) {
+		long start = metrics.start();
+		Status status = Status.OK;
+		for(char digit : digits) {
+			if(digit == SevenSegmentFSM.ERROR_DIGIT)
+				status = Status.ILL;
+		}
+		if(status == Status.OK && verify && !checksum(digits)) {
+			status = Status.ERR;
 		}
-		return new ScanResult(lines, accNum, errMsg);
+		metrics.record(ScanMetrics.Stage.VERIFY, start);
+		return status;
 	}
 	
 	
 	
 	void verifyLine(String line) throws InvalidDataException {
-		if(line.length() != numberOfDigits * CHAR_PER_LINE) 
+		if(line.length() != layout.lineLength()) 
+			throw new InvalidDataException("Unexpected number of characters");
+		if(!LineValidator.isLegal(line)) 
+			throw new InvalidDataException("Illegal characters");
+	}
+	
+	/*
+	 * Verify the line held in the buffer, a negative length means the line is missing.
+	 */
+	void verifyLine(ByteBuffer buffer, int start, int length) throws InvalidDataException {
+		if(length != layout.lineLength()) 
 			throw new InvalidDataException("Unexpected number of characters");
-		if(ILLEGAL_CHAR_PATTERN.matcher(line).find()) 
+		if(!LineValidator.isLegal(buffer, start, length))
 			throw new InvalidDataException("Illegal characters");
 	}
+
+	/*
+	 * Returns the index of the first invalid line of the three lines of an entry held in the buffer,
+	 * or -1 if all are valid. Lines are given as start and length pairs from offset in entry.
+	 */
+	int firstInvalidLine(ByteBuffer buffer, int[] entry, int offset) {
+		return LineValidator.firstInvalidLine(buffer, entry, offset, layout.lineLength());
+	}
 	
 	/*
-	 * Checksum to verify scanned numbers.
-	 * checksum is calculated as
+	 * Checksum to verify scanned numbers, as given by the layout.
+	 * For account numbers checksum is calculated as
 	 * ((1*d1) + (2*d2) + (3*d3) + ... + (9*d9)) % 11 == 0
 	 */
 	public boolean checksum(String number) {
-		List<Integer> digits = number.chars()
-				.mapToObj(c -> Character.getNumericValue(c)).collect(Collectors.toList());
-		Collections.reverse(digits);
-		int checksum = 0;
-		for(int i =0; i < digits.size(); i++) {
-			checksum += (digits.get(i) * (i + 1));
+		return layout.checksum(number);
+	}
+	
+	/*
+	 * Same as checksum for a String, for numbers held in a char array.
+	 */
+	public boolean checksum(char[] number) {
+		return layout.checksum(number);
+	}
+	
+	/*
+	 * Validates many account numbers at once. Each number is given as its numeric value, 
+	 * with numberOfDigits digits including leading zeros. Result for each number is set in valid 
+	 * and the count of valid numbers is returned.
+	 * @throws IllegalStateException if numbers of the layout can have more digits than an int holds.
+	 */
+	public int checksum(int[] numbers, boolean[] valid) {
+		if(numberOfDigits > MAX_INT_DIGITS)
+			throw new IllegalStateException(String.format("Numbers of %s digits do not fit in an int", numberOfDigits));
+		int validCount = 0;
+		for(int i = 0; i < numbers.length; i++) {
+			valid[i] = checksum(numbers[i]);
+			if(valid[i])
+				validCount++;
 		}
-		return checksum % 11 == 0;
+		return validCount;
+	}
+
+	/*
+	 * Same as above, for numbers of up to ScanResult.MAX_DIGITS digits.
+	 */
+	public int checksum(long[] numbers, boolean[] valid) {
+		int validCount = 0;
+		for(int i = 0; i < numbers.length; i++) {
+			valid[i] = checksum(numbers[i]);
+			if(valid[i])
+				validCount++;
+		}
+		return validCount;
+	}
+
+	private boolean checksum(long number) {
+		long checksum = 0;
+		for(int pos = numberOfDigits - 1; pos >= 0; pos--) {
+			checksum += (number % 10) * layout.weight(pos);
+			number /= 10;
+		}
+		return checksum % layout.getModulus() == 0;
 	}
 	
 	List<String> getAlternateDigits(List<String> lines, int nth) {
-		return getAlternateDigits(getDigitSegments(lines, nth));
+		String alternates = getAlternates(lines, nth);
+		List<String> possibleDigits = new ArrayList<>(alternates.length());
+		for(int i = 0; i < alternates.length(); i++) {
+			possibleDigits.add(String.valueOf(alternates.charAt(i)));
+		}
+		return possibleDigits;
+	}
+	
+	/*
+	 * Returns the possible digits for the nth digit as a string of digits, looked up from 
+	 * the precomputed table of the decoder. Digits with characters not known to the decoder are 
+	 * worked out by walking the state machine.
+	 */
+	private String getAlternates(List<String> lines, int nth) {
+		int code = DigitDecoder.codeOf(lines.get(0), lines.get(1), lines.get(2), nth * cellWidth);
+		if(code != DigitDecoder.ILLEGAL_CODE) {
+			return decoder.alternatesOf(code);
+		}
+		StringBuilder sb = new StringBuilder();
+		getAlternateDigits(getDigitSegments(lines, nth)).forEach(sb::append);
+		return sb.toString();
 	}
 	
 	List<String> getAlternateDigits(List<Character> segments) {
-		List<SevenSegmentFSM> alternateFSMs = new ArrayList<>();
-		ssfsm.reset();
-		segments.forEach(c -> {
-			SevenSegmentFSM alt = dsmBuilder.copyOf(ssfsm);
-			if(c == ' ' ? alt.nextNonEmptyState() : alt.nextEmptyState()) {
-				alternateFSMs.add(alt);
-			}
-			ssfsm.nextState(c);
-		});
+		//cursors are plain state numbers, alternates being started at the segment they read differently.
+		int[] alternateStates = new int[segments.size()];
+		int state = StateGraph.INITIAL;
+		for(int i = 0; i < segments.size(); i++) {
+			alternateStates[i] = graph.nextAlternate(state, segments.get(i));
+			state = graph.next(state, segments.get(i));
+		}
 		List<String> possibleDigits = new ArrayList<>();
-		if(!ssfsm.isError()) 
-			possibleDigits.add(ssfsm.getValue());
+		if(state != StateGraph.ERROR) 
+			possibleDigits.add(String.valueOf(graph.valueOf(state)));
 		//transition all alternates and collect all possible results
-		alternateFSMs.forEach(sm -> {
-			for(int i = sm.transitionCount(); i < segments.size();i++)
-				sm.nextState(segments.get(i));
-			if(!sm.isError())
-				possibleDigits.add(sm.getValue());
-		});
+		for(int i = 0; i < alternateStates.length; i++) {
+			int alt = alternateStates[i];
+			if(alt == StateGraph.ERROR)
+				continue;
+			for(int j = i + 1; j < segments.size(); j++)
+				alt = graph.next(alt, segments.get(j));
+			if(alt != StateGraph.ERROR)
+				possibleDigits.add(String.valueOf(graph.valueOf(alt)));
+		}
 		return possibleDigits;
 	}
 	
+	/*
+	 * Outcome of scanning a number.
+	 */
+	public enum Status { OK, ILL, ERR, AMB }
+
+	/*
+	 * Result of scanning a number, kept compact as many results can be retained. Digits are
+	 * packed 4 bits each in a long, so numbers of up to 16 digits are supported, and candidates 
+	 * of ambiguous numbers are packed the same way. Input lines are only kept for numbers that
+	 * are not valid as scanned, lines of valid numbers are rebuilt from their digits when asked for.
+	 */
 	public static class ScanResult {
+		static final int MAX_DIGITS = 16;
+		private static final int ILLEGAL_NIBBLE = 0xF;
+		private static final long[] NO_CANDIDATES = new long[0];
+		private static final Status[] STATUSES = Status.values();
+
 		private final List<String> inputLines;
-		private final String accountNumber;
-		private final String errorMsg;
+		private final long digits;
+		private final byte digitCount;
+		private final byte status;
+		private final long[] candidates;
 		
-		private ScanResult(List<String> lines, String accNum, String errMsg) {
+		private ScanResult(List<String> lines, char[] digits, Status status) {
+			this(lines, pack(digits), digits.length, status, NO_CANDIDATES);
+		}
+
+		private ScanResult(List<String> lines, long digits, int digitCount, Status status, long[] candidates) {
 			this.inputLines = lines;
-			this.accountNumber = accNum;
-			this.errorMsg =errMsg;
+			this.digits = digits;
+			this.digitCount = (byte) digitCount;
+			this.status = (byte) status.ordinal();
+			this.candidates = candidates;
+		}
+
+		static long pack(char[] number) {
+			if(number.length > MAX_DIGITS)
+				throw new IllegalArgumentException("Numbers of more than " + MAX_DIGITS + " digits are not supported");
+			long packed = 0;
+			for(char c : number) {
+				packed = packed << 4 | (c >= '0' && c <= '9' ? c - '0' : ILLEGAL_NIBBLE);
+			}
+			return packed;
 		}
 
+		static long pack(String number) {
+			return pack(number.toCharArray());
+		}
+
+		/*
+		 * Unpacks the digits of a number into dest, illegal digits being ERROR_DIGIT.
+		 */
+		static void unpack(long packed, char[] dest) {
+			for(int i = dest.length - 1; i >= 0; i--, packed >>>= 4) {
+				int digit = (int) (packed & 0xF);
+				dest[i] = digit == ILLEGAL_NIBBLE ? SevenSegmentFSM.ERROR_DIGIT : (char) ('0' + digit);
+			}
+		}
+
+		private String toNumber(long packed) {
+			char[] number = new char[digitCount];
+			unpack(packed, number);
+			return new String(number);
+		}
+
+		/*
+		 * Returns the scanned lines. Lines of numbers that were valid as scanned are rebuilt from the digits.
+		 */
 		public List<String> getInputLines() {
-			return inputLines;
+			if(inputLines != null)
+				return inputLines;
+			StringBuilder[] lines = {new StringBuilder(), new StringBuilder(), new StringBuilder()};
+			char[] number = new char[digitCount];
+			unpack(digits, number);
+			for(char digit : number) {
+				String[] segments = FSMBuilder.getFormattedSegments(digit - '0').split(System.lineSeparator());
+				for(int i = 0; i < lines.length; i++) {
+					lines[i].append(segments[i + 1]);
+				}
+			}
+			return Arrays.asList(lines[0].toString(), lines[1].toString(), lines[2].toString());
 		}
 
 		public String getAccountNumber() {
-			return accountNumber;
+			return toNumber(digits);
+		}
+
+		/*
+		 * Returns the digits of the account number packed 4 bits each, the last digit being the
+		 * lowest 4 bits and 0xF standing for an illegal digit.
+		 */
+		long getPackedNumber() {
+			return digits;
+		}
+
+		int getDigitCount() {
+			return digitCount;
 		}
 
 		public String getErrorMsg() {
-			return errorMsg;
+			switch(getStatus()) {
+			case OK:
+				return null;
+			case AMB:
+				StringBuilder sb = new StringBuilder(getAccountNumber());
+				sb.append(" ").append(Status.AMB).append(" [");
+				for(int i = 0; i < candidates.length; i++) {
+					sb.append(i > 0 ? ", '" : "'").append(toNumber(candidates[i])).append("'");
+				}
+				return sb.append("]").toString();
+			default:
+				return getStatus().name();
+			}
+		}
+
+		public Status getStatus() {
+			return STATUSES[status];
+		}
+
+		/*
+		 * Returns the numbers that pass checksum found while fixing an ambiguous number, empty for other results.
+		 */
+		public List<String> getCandidates() {
+			List<String> numbers = new ArrayList<>(candidates.length);
+			for(long candidate : candidates) {
+				numbers.add(toNumber(candidate));
+			}
+			return numbers;
+		}
+
+		/*
+		 * Candidates packed the same way as the account number.
+		 */
+		long[] getPackedCandidates() {
+			return candidates;
 		}
 		
 		@Override
 		public String toString() {
 			StringBuilder sb = new StringBuilder();
-			sb.append(accountNumber);
+			sb.append(getAccountNumber());
+			String errorMsg = getErrorMsg();
 			if(errorMsg != null) {
 				sb.append(" ").append(errorMsg);
 			}
@@ -257,4 +533,3 @@ public class SevenSegmentScanner {
 		}
 	}
 }
-
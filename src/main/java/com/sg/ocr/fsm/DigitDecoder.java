@@ -0,0 +1,158 @@
+package com.sg.ocr.fsm;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A compiled form of the seven segment state machine. The 9 characters of a digit are read as a 9 trit
+ * code (space = 0, pipe = 1, underscore = 2, first character being the most significant) and looked up
+ * in a precomputed table, so decoding a digit needs no state walk or allocation.
+ * A second table holds the digits each pattern could be read as if one of its characters was
+ * scanned wrongly, which is what fixing scan errors needs.
+ * Decoders compiled from other glyph sets decode their glyphs the same way, in the same time.
+ * The tables are filled when the decoder is compiled and only read afterwards, so one decoder can serve
+ * every scanning thread.
+ */
+public class DigitDecoder {
+	public static final int SEGMENT_COUNT = 9;
+	public static final int SEGMENTS_PER_LINE = 3;
+	public static final int SYMBOL_COUNT = 3;
+	//3^9 possible patterns of a digit.
+	public static final int CODE_COUNT = 19683;
+	public static final int ILLEGAL_CODE = -1;
+
+	static final char[] SYMBOLS = {' ', '|', '_'};
+	private static final byte[] SYMBOL_INDEX = new byte[128];
+
+	static {
+		Arrays.fill(SYMBOL_INDEX, (byte) -1);
+		for(int i = 0; i < SYMBOLS.length; i++) {
+			SYMBOL_INDEX[SYMBOLS[i]] = (byte) i;
+		}
+	}
+
+	private final char[] values;
+	private final String[] alternates;
+
+	DigitDecoder(char[] values, String[] alternates) {
+		this.values = values;
+		this.alternates = alternates;
+	}
+
+	/*
+	 * Returns the trit for the given character or -1 if it is not a supported character.
+	 */
+	public static int symbolOf(int ch) {
+		return ch < SYMBOL_INDEX.length ? SYMBOL_INDEX[ch] : -1;
+	}
+
+	/*
+	 * Returns the code of the digit starting at the given offset of the three lines, or
+	 * ILLEGAL_CODE if any of its characters is not supported.
+	 */
+	public static int codeOf(String line1, String line2, String line3, int offset) {
+		int code = appendCode(0, line1, offset);
+		code = appendCode(code, line2, offset);
+		return appendCode(code, line3, offset);
+	}
+
+	private static int appendCode(int code, String line, int offset) {
+		for(int i = offset; i < offset + SEGMENTS_PER_LINE && code >= 0; i++) {
+			int symbol = symbolOf(line.charAt(i));
+			code = symbol < 0 ? ILLEGAL_CODE : code * SYMBOL_COUNT + symbol;
+		}
+		return code;
+	}
+
+	/*
+	 * Returns the code of the digit starting at the given offset of the three lines held in the buffer,
+	 * where lines are given as their start positions in the buffer.
+	 */
+	public static int codeOf(ByteBuffer buffer, int line1, int line2, int line3, int offset) {
+		int code = appendCode(0, buffer, line1 + offset);
+		code = appendCode(code, buffer, line2 + offset);
+		return appendCode(code, buffer, line3 + offset);
+	}
+
+	private static int appendCode(int code, ByteBuffer buffer, int start) {
+		for(int i = start; i < start + SEGMENTS_PER_LINE && code >= 0; i++) {
+			int symbol = symbolOf(buffer.get(i) & 0xFF);
+			code = symbol < 0 ? ILLEGAL_CODE : code * SYMBOL_COUNT + symbol;
+		}
+		return code;
+	}
+
+	/*
+	 * Works out the codes of all the digits of the three lines, the digits being codes.length cells
+	 * cellWidth characters wide. Each line is read once from left to right, the part of each digit
+	 * on the line being added to its code, rather than reading three lines for each digit in turn.
+	 */
+	public static void codesOf(String line1, String line2, String line3, int cellWidth, int[] codes) {
+		Arrays.fill(codes, 0);
+		appendRow(codes, line1, cellWidth);
+		appendRow(codes, line2, cellWidth);
+		appendRow(codes, line3, cellWidth);
+	}
+
+	private static void appendRow(int[] codes, String line, int cellWidth) {
+		for(int i = 0, pos = 0; i < codes.length; i++, pos += cellWidth) {
+			codes[i] = appendRow(codes[i], symbolOf(line.charAt(pos)), symbolOf(line.charAt(pos + 1)), symbolOf(line.charAt(pos + 2)));
+		}
+	}
+
+	/*
+	 * Same as codesOf for lines held in a buffer, given as their start positions in the buffer.
+	 */
+	public static void codesOf(ByteBuffer buffer, int line1, int line2, int line3, int cellWidth, int[] codes) {
+		Arrays.fill(codes, 0);
+		appendRow(codes, buffer, line1, cellWidth);
+		appendRow(codes, buffer, line2, cellWidth);
+		appendRow(codes, buffer, line3, cellWidth);
+	}
+
+	private static void appendRow(int[] codes, ByteBuffer buffer, int start, int cellWidth) {
+		for(int i = 0, pos = start; i < codes.length; i++, pos += cellWidth) {
+			codes[i] = appendRow(codes[i], symbolOf(buffer.get(pos) & 0xFF), symbolOf(buffer.get(pos + 1) & 0xFF), 
+					symbolOf(buffer.get(pos + 2) & 0xFF));
+		}
+	}
+
+	/*
+	 * Adds the three symbols of a line to the code, any illegal symbol making the code illegal.
+	 */
+	private static int appendRow(int code, int s1, int s2, int s3) {
+		return (code | s1 | s2 | s3) < 0 ? ILLEGAL_CODE : ((code * SYMBOL_COUNT + s1) * SYMBOL_COUNT + s2) * SYMBOL_COUNT + s3;
+	}
+
+	/*
+	 * Decodes the digits of the codes into digits.
+	 */
+	public void valuesOf(int[] codes, char[] digits) {
+		for(int i = 0; i < codes.length; i++) {
+			digits[i] = valueOf(codes[i]);
+		}
+	}
+
+	/*
+	 * Returns the value of the digit represented by the code, or ERROR_DIGIT if there isn't one.
+	 */
+	public char valueOf(int code) {
+		return code < 0 ? SevenSegmentFSM.ERROR_DIGIT : values[code];
+	}
+
+	/*
+	 * Returns the possible digits for the code, which is the digit itself if valid followed by digits
+	 * that are one character away in the order of the characters. A space can be read as a
+	 * segment and a segment as a space.
+	 */
+	public String alternatesOf(int code) {
+		return code < 0 ? "" : alternates[code];
+	}
+
+	/*
+	 * Decode the digit starting at the given offset of the three lines.
+	 */
+	public char decode(String line1, String line2, String line3, int offset) {
+		return valueOf(codeOf(line1, line2, line3, offset));
+	}
+}
@@ -1,10 +1,14 @@
 package com.sg.ocr.fsm;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /*
  * A builder/factory class to build SevenSegment state machine, and other helper methods.
+ * State machines are built for the digits or any other glyph set.
  */
 public class FSMBuilder {
 	
@@ -24,33 +28,175 @@ public class FSMBuilder {
 	
 	
 	/**
-	 * Build a state machine for the given digit with the list of specified sevenSegmentCharacters.
+	 * Build a state machine for the given glyph with the specified sevenSegmentCharacters.
 	 */
-	private void addDigit(SevenSegmentFSM sssm,  String digit, List<Character> ssDigitCharacters) {
+	private void addGlyph(SevenSegmentFSM sssm, char glyph, String ssCharacters) {
 		State lastState = sssm.getIntial();
 		//add state transformation for each character
+		//characters with no transition move the state machine to an error.
 		for(int i = 0 ; i < 8; i++) {
-			//handle transformation for any digit other than the specified which will
-			//transform to an error.
-			lastState.addStateTransform(SevenSegmentFSM.ERROR_DIGIT);
-			lastState = lastState.addStateTransform(ssDigitCharacters.get(i));
+			lastState = lastState.addStateTransform(ssCharacters.charAt(i));
 		}
-		//finally add the last state which represents the digit.
-		State state = new State(digit, true);
-		lastState.addStateTransform(ssDigitCharacters.get(8), state);
+		//finally add the last state which represents the glyph.
+		State state = new State(String.valueOf(glyph), true);
+		lastState.addStateTransform(ssCharacters.charAt(8), state);
 	}
 	
 	/*
-	 * Creates a state machine for scanning seven segment digits.
+	 * Creates a state machine for scanning seven segment digits, minimized so that states reading
+	 * the same digits from there on are one state.
 	 */
 	public SevenSegmentFSM buildStateMachineForDigits() {
+		return buildStateMachine(GlyphSet.DIGITS);
+	}
+	
+	/*
+	 * Creates a minimized state machine for scanning the glyphs of the set.
+	 */
+	public SevenSegmentFSM buildStateMachine(GlyphSet glyphSet) {
+		return minimize(buildTrie(glyphSet));
+	}
+	
+	/*
+	 * Creates the state machine with a chain of states of its own for each glyph drawing, sharing
+	 * only the states of common prefixes.
+	 */
+	SevenSegmentFSM buildTrie(GlyphSet glyphSet) {
 		SevenSegmentFSM sssm = new SevenSegmentFSM();
-		for(int i =0; i < 10; i++) {
-			addDigit(sssm, Integer.toString(i), DIGIT_LIST.get(i));
-		}
+		glyphSet.glyphs().forEach((segments, glyph) -> addGlyph(sssm, glyph, segments));
 		return sssm;
 	}
 	
+	/*
+	 * Merges the equivalent states of the state machine, in place.
+	 */
+	SevenSegmentFSM minimize(SevenSegmentFSM sssm) {
+		minimize(sssm.getIntial(), new HashMap<>());
+		return sssm;
+	}
+	
+	/*
+	 * Merges equivalent states below the given state and returns the state to use in its place.
+	 * As the state machine has no loops, states are equivalent when they have the same value and
+	 * move to the same states on each character, which is checked from the last states up by
+	 * keeping one state for each such signature, so the result is the minimal state machine.
+	 */
+	private State minimize(State state, Map<List<Object>, State> states) {
+		//states in the signature are compared as themselves, they being the ones kept already.
+		List<Object> signature = new ArrayList<>();
+		signature.add(state.isFinal());
+		signature.add(state.getValue());
+		for(int symbol = 0; symbol < DigitDecoder.SYMBOL_COUNT; symbol++) {
+			State next = state.nextOnSymbol(symbol);
+			if(next != null) {
+				next = minimize(next, states);
+				state.addStateTransform(DigitDecoder.SYMBOLS[symbol], next);
+			}
+			signature.add(next);
+		}
+		State existing = states.putIfAbsent(signature, state);
+		return existing == null ? state : existing;
+	}
+	
+	/*
+	 * Creates the immutable graph of the state machine for scanning seven segment digits, which can
+	 * be shared and walked by many threads at once.
+	 */
+	public StateGraph buildGraphForDigits() {
+		return graphOf(buildStateMachineForDigits());
+	}
+	
+	/*
+	 * Creates the immutable graph of the state machine for scanning the glyphs of the set.
+	 */
+	public StateGraph buildGraph(GlyphSet glyphSet) {
+		return graphOf(buildStateMachine(glyphSet));
+	}
+	
+	/*
+	 * Compiles a decoder for the glyphs of the set. Decoding is a table lookup whatever the
+	 * number of glyphs.
+	 */
+	public DigitDecoder compile(GlyphSet glyphSet) {
+		return compile(buildGraph(glyphSet));
+	}
+	
+	/*
+	 * Returns the immutable graph of the states of the given state machine.
+	 */
+	public StateGraph graphOf(SevenSegmentFSM sssm) {
+		return StateGraph.of(sssm.getIntial());
+	}
+	
+	/*
+	 * Compiles the given state machine into a lookup table based decoder.
+	 */
+	public DigitDecoder compile(SevenSegmentFSM sssm) {
+		return compile(graphOf(sssm));
+	}
+	
+	/*
+	 * Compiles the given state graph into a lookup table based decoder, by walking every
+	 * possible pattern of a digit through the graph once.
+	 */
+	public DigitDecoder compile(StateGraph graph) {
+		char[] values = new char[DigitDecoder.CODE_COUNT];
+		Arrays.fill(values, SevenSegmentFSM.ERROR_DIGIT);
+		compile(graph, StateGraph.INITIAL, 0, 0, values);
+		String[] alternates = new String[DigitDecoder.CODE_COUNT];
+		Map<String, String> uniqueAlternates = new HashMap<>();
+		for(int code = 0; code < DigitDecoder.CODE_COUNT; code++) {
+			String alts = alternatesOf(graph, code, values);
+			alternates[code] = uniqueAlternates.computeIfAbsent(alts, a -> a);
+		}
+		return new DigitDecoder(values, alternates);
+	}
+	
+	/*
+	 * Collects the digits the code could be read as by changing one character, same as moving
+	 * the state machine to a non empty state for a space and an empty state otherwise.
+	 */
+	private String alternatesOf(StateGraph graph, int code, char[] values) {
+		StringBuilder sb = new StringBuilder();
+		if(values[code] != SevenSegmentFSM.ERROR_DIGIT) {
+			sb.append(values[code]);
+		}
+		int state = StateGraph.INITIAL;
+		int weight = DigitDecoder.CODE_COUNT / DigitDecoder.SYMBOL_COUNT;
+		for(int i = 0; i < DigitDecoder.SEGMENT_COUNT && state != StateGraph.ERROR; i++) {
+			int symbol = (code / weight) % DigitDecoder.SYMBOL_COUNT;
+			for(int alt = 0; alt < DigitDecoder.SYMBOL_COUNT; alt++) {
+				//only the first segment that can be moved to is tried for a space.
+				if((symbol == 0) != (alt == 0) && graph.nextOnSymbol(state, alt) != StateGraph.ERROR) {
+					char value = values[code + (alt - symbol) * weight];
+					if(value != SevenSegmentFSM.ERROR_DIGIT) {
+						sb.append(value);
+					}
+					break;
+				}
+			}
+			state = graph.nextOnSymbol(state, symbol);
+			weight /= DigitDecoder.SYMBOL_COUNT;
+		}
+		return sb.toString();
+	}
+	
+	private void compile(StateGraph graph, int state, int depth, int code, char[] values) {
+		if(depth == DigitDecoder.SEGMENT_COUNT) {
+			if(graph.isFinal(state)) {
+				values[code] = graph.valueOf(state);
+			}
+			return;
+		}
+		for(int symbol = 0; symbol < DigitDecoder.SYMBOL_COUNT; symbol++) {
+			int next = graph.nextOnSymbol(state, symbol);
+			//missing transitions are left as errors.
+			if(next != StateGraph.ERROR) {
+				compile(graph, next, depth + 1, code * DigitDecoder.SYMBOL_COUNT + symbol, values);
+			}
+		}
+	}
+	
 	public SevenSegmentFSM copyOf(SevenSegmentFSM sssm) {
 		return sssm.copy();
 	}
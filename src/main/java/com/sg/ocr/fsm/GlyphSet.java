@@ -0,0 +1,135 @@
+package com.sg.ocr.fsm;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A registry of the glyphs a state machine is built for, each glyph being a character and the 9 characters
+ * it is drawn with, three from each line. A glyph can be drawn in more than one way, but a drawing can only
+ * be one glyph.
+ * Glyph sets can be read from a file with a glyph on each line, the character followed by its drawing in
+ * quotes, such as
+ *
+ *   A " _ |_|| |"
+ *
+ * Empty lines and lines starting with # are skipped.
+ * Adding glyphs with {@link #with} gives a new set and leaves this one as it was, so shared sets such as
+ * DIGITS can be extended without affecting other users.
+ */
+public final class GlyphSet {
+	//A to F as drawn on seven segment displays, with b and d in lower case, and a minus sign.
+	public static final String HEX_RESOURCE = "/com/sg/ocr/fsm/hex-glyphs.txt";
+	public static final GlyphSet DIGITS = digits();
+
+	//glyph of each drawing, in the order they were added.
+	private final Map<String, Character> glyphs;
+
+	private GlyphSet(Map<String, Character> glyphs) {
+		this.glyphs = Collections.unmodifiableMap(glyphs);
+	}
+
+	private static GlyphSet digits() {
+		GlyphSet glyphSet = new GlyphSet(new LinkedHashMap<>());
+		for(int i = 0; i < 10; i++) {
+			StringBuilder segments = new StringBuilder();
+			FSMBuilder.getSegmentsForDigit(i).forEach(segments::append);
+			glyphSet = glyphSet.with((char) ('0' + i), segments.toString());
+		}
+		return glyphSet;
+	}
+
+	/*
+	 * Returns a glyph set with the glyphs of this set and the given glyph.
+	 * @throws IllegalArgumentException if the drawing is not 9 supported characters, the glyph is the
+	 * error digit or the drawing is already another glyph.
+	 */
+	public GlyphSet with(char glyph, String segments) {
+		if(glyph == SevenSegmentFSM.ERROR_DIGIT)
+			throw new IllegalArgumentException(String.format("'%s' can not be a glyph", glyph));
+		if(segments.length() != DigitDecoder.SEGMENT_COUNT || !segments.chars().allMatch(c -> DigitDecoder.symbolOf(c) >= 0))
+			throw new IllegalArgumentException(String.format("Glyph '%s' must be drawn with %s spaces, pipes or underscores",
+					glyph, DigitDecoder.SEGMENT_COUNT));
+		Character existing = glyphs.get(segments);
+		if(existing != null && existing != glyph)
+			throw new IllegalArgumentException(String.format("Glyph '%s' is drawn the same as '%s'", glyph, existing));
+		Map<String, Character> added = new LinkedHashMap<>(glyphs);
+		added.put(segments, glyph);
+		return new GlyphSet(added);
+	}
+
+	/*
+	 * Returns a glyph set with the glyphs of this set and the other.
+	 */
+	public GlyphSet with(GlyphSet other) {
+		GlyphSet glyphSet = this;
+		for(Map.Entry<String, Character> glyph : other.glyphs.entrySet()) {
+			glyphSet = glyphSet.with(glyph.getValue(), glyph.getKey());
+		}
+		return glyphSet;
+	}
+
+	/*
+	 * Returns the decimal digits along with the hexadecimal glyphs and the minus sign.
+	 */
+	public static GlyphSet hex() throws IOException {
+		return DIGITS.with(fromResource(HEX_RESOURCE));
+	}
+
+	public static GlyphSet fromResource(String name) throws IOException {
+		InputStream in = GlyphSet.class.getResourceAsStream(name);
+		if(in == null)
+			throw new IOException(String.format("Glyph resource %s not found", name));
+		try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+			return read(reader);
+		}
+	}
+
+	/*
+	 * Reads glyphs in the format described above.
+	 * @throws IOException if a line is not a glyph followed by its quoted drawing.
+	 */
+	public static GlyphSet read(Reader reader) throws IOException {
+		GlyphSet glyphSet = new GlyphSet(new LinkedHashMap<>());
+		BufferedReader lines = new BufferedReader(reader);
+		String line;
+		int lineNumber = 0;
+		while((line = lines.readLine()) != null) {
+			lineNumber++;
+			if(line.trim().isEmpty() || line.startsWith("#"))
+				continue;
+			int open = line.indexOf('"');
+			int close = line.lastIndexOf('"');
+			if(open != 2 || line.charAt(1) != ' ' || close <= open || !line.substring(close + 1).trim().isEmpty())
+				throw new IOException(String.format("Invalid glyph at line %s: %s", lineNumber, line));
+			try {
+				glyphSet = glyphSet.with(line.charAt(0), line.substring(open + 1, close));
+			} catch (IllegalArgumentException e) {
+				throw new IOException(String.format("Invalid glyph at line %s: %s", lineNumber, e.getMessage()), e);
+			}
+		}
+		return glyphSet;
+	}
+
+	/*
+	 * Returns the glyph of each drawing, in the order they were added.
+	 */
+	public Map<String, Character> glyphs() {
+		return glyphs;
+	}
+
+	public int size() {
+		return glyphs.size();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("GlyphSet: %s", glyphs.values());
+	}
+}
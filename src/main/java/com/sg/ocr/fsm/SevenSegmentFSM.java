@@ -9,6 +9,8 @@ import java.util.Set;
 /**
  * A finite state machine for handling characters made up of seven segments using spaces, pipes and underscores. Although, this 
  * is a seven segment character, we use 9 character states - includes two additional spaces on the first line - to represent a digit.
+ * The state machine keeps the state it is on, so it is used by one thread at a time. Scanning walks its immutable
+ * StateGraph instead, which can be shared.
  *   
  * @author sg
  *
@@ -52,7 +54,8 @@ public class SevenSegmentFSM {
 	 */
 	public void nextState(char segment) {
 		if(currState != STATE_ERROR) {
-			State nextState = SUPPORTED_CHARACTERS.contains(segment) ?  currState.nextState(segment) : null;
+			int symbol = DigitDecoder.symbolOf(segment);
+			State nextState = symbol < 0 ? null : currState.nextOnSymbol(symbol);
 			if(nextState == null) {
 				nextState = STATE_ERROR;
 			}
@@ -67,13 +70,9 @@ public class SevenSegmentFSM {
 	public boolean nextNonEmptyState() {
 		//pick a state to move to for any character other than space.
 		State nextState = null;
-		for(char segment : SUPPORTED_CHARACTERS) {
-			if(' ' != segment) {
-				nextState = currState.nextState(segment);
-				if(nextState != null) {
-					break;
-				}
-			}
+		//symbols after the space, pipe then underscore.
+		for(int symbol = 1; symbol < DigitDecoder.SYMBOL_COUNT && nextState == null; symbol++) {
+			nextState = currState.nextOnSymbol(symbol);
 		}
 		if(nextState != null) {
 			transitions++;
@@ -87,8 +86,7 @@ public class SevenSegmentFSM {
 	 * Transform to next empty state. This move is ideal for skipping incorrectly scanned  input character.
 	 */
 	public boolean nextEmptyState() {
-		//pick a state to move to for any character other than space.
-		State nextState = currState.nextState(' ');
+		State nextState = currState.nextOnSymbol(0);
 		if(nextState != null) {
 			transitions++;
 			currState = nextState;
@@ -1,14 +1,12 @@
 package com.sg.ocr.fsm;
 
-import java.util.HashMap;
-import java.util.Map;
-
 /*
- * Represents a state in the seven segment state machine.
+ * Represents a state in the seven segment state machine. Transitions are held in a slot for each
+ * supported character, space, pipe and underscore, in the order of DigitDecoder.SYMBOLS.
  */
 public class State {
 	private final boolean isFinal;
-	private Map<Character,State> stateTransformMap;
+	private final State[] transitions;
 	private String value;
 	
 	
@@ -19,15 +17,19 @@ public class State {
 	public State(String value, boolean isFinal) {
 		this.value = value;
 		this.isFinal = isFinal;
-		stateTransformMap = new HashMap<>();
+		transitions = new State[DigitDecoder.SYMBOL_COUNT];
 	}
 	
 	/**
 	 * Add transformation to next State toState
 	 * @param toState
+	 * @throws IllegalArgumentException if ch is not a supported character.
 	 */
 	public void addStateTransform(char ch, State toState) {
-		stateTransformMap.put(ch, toState);
+		int symbol = DigitDecoder.symbolOf(ch);
+		if(symbol < 0)
+			throw new IllegalArgumentException(String.format("Unsupported character '%s'", ch));
+		transitions[symbol] = toState;
 	}
 	
 	/**
@@ -46,7 +48,15 @@ public class State {
 	 * Returns next state on specified character ch.
 	 */
 	public State nextState(char ch) {
-		return stateTransformMap.get(ch);
+		int symbol = DigitDecoder.symbolOf(ch);
+		return symbol < 0 ? null : transitions[symbol];
+	}
+	
+	/*
+	 * Returns next state on the symbol, the index of a character in DigitDecoder.SYMBOLS.
+	 */
+	State nextOnSymbol(int symbol) {
+		return transitions[symbol];
 	}
 	
 	public String getValue() {
@@ -66,10 +76,12 @@ public class State {
 		StringBuilder sb = new StringBuilder();
 		sb.append("State: [value=\'").append(value).append("\']");
 		sb.append(" to=[");
-		stateTransformMap.entrySet().forEach(e -> {
-			sb.append("\'").append(e.getKey()).append("\'->");
-			sb.append(e.getValue());
-		});
+		for(int symbol = 0; symbol < transitions.length; symbol++) {
+			if(transitions[symbol] != null) {
+				sb.append("\'").append(DigitDecoder.SYMBOLS[symbol]).append("\'->");
+				sb.append(transitions[symbol]);
+			}
+		}
 		sb.append("]");
 		return sb.toString();
 	}
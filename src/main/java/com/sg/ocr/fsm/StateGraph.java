@@ -0,0 +1,113 @@
+package com.sg.ocr.fsm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable form of the seven segment state machine. States are numbered from 0, the initial state
+ * being 0, and walking the graph is done with a cursor that is just the number of the current state,
+ * so any number of threads and alternate paths can walk the same graph at once without allocating.
+ * Moving from the ERROR state or on a character with no transition gives ERROR.
+ * States are numbered level by level from the initial state, so the transitions of the states read for
+ * each character of a digit are next to each other in one table.
+ */
+public final class StateGraph {
+	public static final int ERROR = -1;
+	public static final int INITIAL = 0;
+
+	//next state of each state for each symbol, ERROR where there is no transition.
+	private final int[] transitions;
+	//value of final states, ERROR_DIGIT for states that are not final.
+	private final char[] values;
+
+	private StateGraph(int[] transitions, char[] values) {
+		this.transitions = transitions;
+		this.values = values;
+	}
+
+	/*
+	 * Builds the graph of the states reachable from the given initial state on supported characters.
+	 */
+	static StateGraph of(State initial) {
+		Map<State, Integer> numbers = new IdentityHashMap<>();
+		List<State> states = new ArrayList<>();
+		numbers.put(initial, 0);
+		states.add(initial);
+		//states are numbered in the order they are found, breadth first.
+		for(int i = 0; i < states.size(); i++) {
+			for(int symbol = 0; symbol < DigitDecoder.SYMBOL_COUNT; symbol++) {
+				State next = states.get(i).nextOnSymbol(symbol);
+				if(next != null && !numbers.containsKey(next)) {
+					numbers.put(next, states.size());
+					states.add(next);
+				}
+			}
+		}
+		int[] transitions = new int[states.size() * DigitDecoder.SYMBOL_COUNT];
+		char[] values = new char[states.size()];
+		for(int i = 0; i < states.size(); i++) {
+			State state = states.get(i);
+			for(int symbol = 0; symbol < DigitDecoder.SYMBOL_COUNT; symbol++) {
+				State next = state.nextOnSymbol(symbol);
+				transitions[i * DigitDecoder.SYMBOL_COUNT + symbol] = next == null ? ERROR : numbers.get(next);
+			}
+			values[i] = state.isFinal() && state.getValue() != null ? state.getValue().charAt(0) : SevenSegmentFSM.ERROR_DIGIT;
+		}
+		return new StateGraph(transitions, values);
+	}
+
+	public int stateCount() {
+		return values.length;
+	}
+
+	/*
+	 * Returns the state moved to from the given state on the segment character.
+	 */
+	public int next(int state, char segment) {
+		int symbol = DigitDecoder.symbolOf(segment);
+		return state == ERROR || symbol < 0 ? ERROR : transitions[state * DigitDecoder.SYMBOL_COUNT + symbol];
+	}
+
+	/*
+	 * Returns the state moved to from the given state for the symbol, 0 to SYMBOL_COUNT - 1.
+	 */
+	public int nextOnSymbol(int state, int symbol) {
+		return state == ERROR ? ERROR : transitions[state * DigitDecoder.SYMBOL_COUNT + symbol];
+	}
+
+	/*
+	 * Returns the state moved to if the segment character had been scanned wrongly, that is the first
+	 * state moved to on a pipe or underscore for a space and the state moved to on a space otherwise.
+	 */
+	public int nextAlternate(int state, char segment) {
+		if(state == ERROR)
+			return ERROR;
+		if(segment != ' ')
+			return transitions[state * DigitDecoder.SYMBOL_COUNT];
+		for(int symbol = 1; symbol < DigitDecoder.SYMBOL_COUNT; symbol++) {
+			int next = transitions[state * DigitDecoder.SYMBOL_COUNT + symbol];
+			if(next != ERROR)
+				return next;
+		}
+		return ERROR;
+	}
+
+	public boolean isFinal(int state) {
+		return state != ERROR && values[state] != SevenSegmentFSM.ERROR_DIGIT;
+	}
+
+	/*
+	 * Returns the digit of the state, or ERROR_DIGIT if it is not a final state.
+	 */
+	public char valueOf(int state) {
+		return state == ERROR ? SevenSegmentFSM.ERROR_DIGIT : values[state];
+	}
+
+	@Override
+	public String toString() {
+		return String.format("StateGraph: [states=%s, transitions=%s]", values.length, Arrays.toString(transitions));
+	}
+}
@@ -0,0 +1,152 @@
+package com.sg.ocr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.sg.ocr.SevenSegmentScanner.ScanResult;
+
+public class BatchScannerTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static final String ENTRY_123456789 = "    _  _     _  _  _  _  _ " + System.lineSeparator()
+			+ "  | _| _||_||_ |_   ||_||_|" + System.lineSeparator()
+			+ "  ||_  _|  | _||_|  ||_| _|" + System.lineSeparator()
+			+ System.lineSeparator();
+	private static final String ENTRY_000000051 = " _  _  _  _  _  _  _  _    " + System.lineSeparator()
+			+ "| || || || || || || ||_   |" + System.lineSeparator()
+			+ "|_||_||_||_||_||_||_| _|  |" + System.lineSeparator()
+			+ System.lineSeparator();
+
+	@Test
+	public void testIsBatch() throws Exception {
+		File file = folder.newFile("a.txt");
+		assertFalse(BatchScanner.isBatch(Arrays.asList(file.getPath())));
+		assertTrue(BatchScanner.isBatch(Arrays.asList(file.getPath(), file.getPath())));
+		assertTrue(BatchScanner.isBatch(Arrays.asList(folder.getRoot().getPath())));
+		assertTrue(BatchScanner.isBatch(Arrays.asList(folder.getRoot().getPath() + "/*.txt")));
+		assertTrue(BatchScanner.isBatch(Arrays.asList("@" + file.getPath())));
+	}
+
+	@Test
+	public void testResolveInputs() throws Exception {
+		Path a = write("a.txt", ENTRY_123456789);
+		Path b = write("b.txt", ENTRY_000000051);
+		write("c.dat", ENTRY_123456789);
+		Path manifest = write("files.lst", "# files to scan" + System.lineSeparator() + b + System.lineSeparator()
+				+ System.lineSeparator() + a + System.lineSeparator());
+
+		String dir = folder.getRoot().getPath();
+		assertEquals(Arrays.asList(a, b), BatchScanner.resolveInputs(Arrays.asList(dir + "/*.txt")));
+		assertEquals(Arrays.asList(b, a), BatchScanner.resolveInputs(Arrays.asList("@" + manifest)));
+		assertEquals(4, BatchScanner.resolveInputs(Arrays.asList(dir)).size());
+	}
+
+	@Test
+	public void testScan_inInputOrder() throws Exception {
+		Path a = write("a.txt", ENTRY_123456789);
+		Path b = write("b.txt", ENTRY_000000051 + ENTRY_123456789);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (OcrDemo ocrDemo = new OcrDemo();
+				BatchScanner batchScanner = new BatchScanner(ocrDemo, 2)) {
+			int failed = batchScanner.scan(Arrays.asList(b, a), Collections.emptySet(), null, new PrintStream(bytes));
+			assertEquals(0, failed);
+		}
+		String expected = "==> " + b + " <==" + System.lineSeparator()
+				+ "000000051" + System.lineSeparator() + "123456789" + System.lineSeparator() + System.lineSeparator()
+				+ "==> " + a + " <==" + System.lineSeparator()
+				+ "123456789" + System.lineSeparator() + System.lineSeparator();
+		assertEquals(expected, new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void testScan_toOutDir() throws Exception {
+		Path a = write("a.txt", ENTRY_123456789);
+		Path other = folder.newFolder("other").toPath();
+		Path a2 = Files.write(other.resolve("a.txt"), ENTRY_000000051.getBytes(StandardCharsets.UTF_8));
+		Path outDir = folder.newFolder("out").toPath();
+		try (OcrDemo ocrDemo = new OcrDemo();
+				BatchScanner batchScanner = new BatchScanner(ocrDemo, 2)) {
+			int failed = batchScanner.scan(Arrays.asList(a, a2), new HashSet<>(Arrays.asList("-verify")), outDir, System.out);
+			assertEquals(0, failed);
+		}
+		List<String> lines = Files.readAllLines(outDir.resolve("a.txt.out"));
+		assertEquals(Arrays.asList("Valid:", "123456789", "", "Invalid:", ""), lines);
+		lines = Files.readAllLines(outDir.resolve("a.txt-2.out"));
+		assertEquals(Arrays.asList("Valid:", "000000051", "", "Invalid:", ""), lines);
+	}
+
+	@Test
+	public void testScan_withFailedFile() throws Exception {
+		Path a = write("a.txt", ENTRY_123456789);
+		Path missing = Paths.get(folder.getRoot().getPath(), "missing.txt");
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (OcrDemo ocrDemo = new OcrDemo();
+				BatchScanner batchScanner = new BatchScanner(ocrDemo, 2)) {
+			int failed = batchScanner.scan(Arrays.asList(missing, a), Collections.emptySet(), null, new PrintStream(bytes));
+			assertEquals(1, failed);
+		}
+		String expected = "==> " + a + " <==" + System.lineSeparator()
+				+ "123456789" + System.lineSeparator() + System.lineSeparator();
+		assertEquals(expected, new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void testScan_limitsFilesScannedAhead() throws Exception {
+		List<Path> files = new ArrayList<>();
+		for(int i = 0; i < 20; i++) {
+			files.add(write(i + ".txt", ENTRY_123456789));
+		}
+		AtomicInteger started = new AtomicInteger();
+		List<Integer> startedAtHeader = new ArrayList<>();
+		PrintStream out = new PrintStream(new ByteArrayOutputStream()) {
+			@Override
+			public void println(String x) {
+				startedAtHeader.add(started.get());
+				super.println(x);
+			}
+		};
+		try (OcrDemo ocrDemo = new OcrDemo() {
+					@Override
+					public void scanFile(String path, Set<String> options, Consumer<ScanResult> consumer) throws IOException {
+						started.incrementAndGet();
+						super.scanFile(path, options, consumer);
+					}
+				};
+				BatchScanner batchScanner = new BatchScanner(ocrDemo, 2)) {
+			assertEquals(0, batchScanner.scan(files, Collections.emptySet(), null, out));
+		}
+		assertEquals(20, startedAtHeader.size());
+		for(int i = 0; i < startedAtHeader.size(); i++) {
+			//files up to 2 * threads ahead of the one printed have been scanned.
+			assertTrue(startedAtHeader.get(i) <= i + 4);
+		}
+	}
+
+	private Path write(String name, String content) throws Exception {
+		return Files.write(folder.getRoot().toPath().resolve(name), content.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,63 @@
+package com.sg.ocr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStreamReader;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.sg.ocr.SevenSegmentScanner.ScanResult;
+
+public class CheckpointTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testWriteTo() throws Exception {
+		Path file = folder.getRoot().toPath().resolve("scan.checkpoint");
+		new Checkpoint("/data/in.txt", 1L << 33, 120001, 30000, 300000).writeTo(file);
+		new Checkpoint("/data/in.txt", 1L << 34, 240001, 60000, 600000).writeTo(file);
+		Checkpoint checkpoint = Checkpoint.read(file);
+		assertEquals("/data/in.txt", checkpoint.getInput());
+		assertEquals(1L << 34, checkpoint.getInputOffset());
+		assertEquals(240001, checkpoint.getLineNumber());
+		assertEquals(60000, checkpoint.getEntries());
+		assertEquals(600000, checkpoint.getOutputPosition());
+		assertFalse(Files.exists(folder.getRoot().toPath().resolve("scan.checkpoint.tmp")));
+	}
+
+	@Test
+	public void testRecorder() throws Exception {
+		Path file = folder.getRoot().toPath().resolve("scan.checkpoint");
+		Path outFile = folder.newFile().toPath();
+		List<ScanResult> results = new OcrDemo().scan(new InputStreamReader(
+				getClass().getResourceAsStream("/user_story1.txt")), Collections.emptySet());
+		try (FileChannel out = FileChannel.open(outFile, StandardOpenOption.WRITE);
+				OutputWriter outWriter = new OutputWriter(false, false, out)) {
+			Checkpoint.Recorder recorder = new Checkpoint.Recorder("in.txt", file, 0, outWriter, out);
+			outWriter.write(results.get(0));
+			recorder.reached(108, 5, 1);
+		}
+		Checkpoint checkpoint = Checkpoint.read(file);
+		assertEquals(108, checkpoint.getInputOffset());
+		assertEquals(5, checkpoint.getLineNumber());
+		assertEquals(1, checkpoint.getEntries());
+		//written results are flushed before the output position is taken.
+		ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		OutputWriter outWriter = new OutputWriter(false, false, expected);
+		outWriter.write(results.get(0));
+		outWriter.flush();
+		assertEquals(expected.size(), checkpoint.getOutputPosition());
+	}
+}
@@ -0,0 +1,81 @@
+package com.sg.ocr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class CorrectionSearchTest {
+
+	private static String[] alternates(String... alts) {
+		return alts;
+	}
+
+	@Test
+	public void testSearch_singleIllegalDigit() throws Exception {
+		CorrectionSearch search = new CorrectionSearch();
+		List<String> found = search.search("?23456789",
+				alternates("17", "2", "3", "4", "5", "6", "7", "8", "9"));
+		assertEquals(Arrays.asList("123456789"), found);
+	}
+
+	@Test
+	public void testSearch_errorNumber() throws Exception {
+		CorrectionSearch search = new CorrectionSearch();
+		String[] alts = new String[9];
+		Arrays.fill(alts, "596");
+		List<String> found = search.search("555555555", alts);
+		assertEquals(Arrays.asList("559555555", "555655555"), found);
+	}
+
+	@Test
+	public void testSearch_moreIllegalDigitsThanEdits() throws Exception {
+		CorrectionSearch search = new CorrectionSearch();
+		List<String> found = search.search("??3456789",
+				alternates("17", "2", "3", "4", "5", "6", "7", "8", "9"));
+		assertTrue(found.isEmpty());
+	}
+
+	@Test
+	public void testSearch_multipleIllegalDigits() throws Exception {
+		CorrectionSearch search = new CorrectionSearch(2, CorrectionSearch.DEFAULT_BUDGET);
+		List<String> found = search.search("??3456789",
+				alternates("17", "2", "3", "4", "5", "6", "7", "8", "9"));
+		assertEquals(Arrays.asList("123456789"), found);
+	}
+
+	@Test
+	public void testSearch_illegalAndErrorDigits() throws Exception {
+		//first digit is illegal and a 1 was scanned as 7.
+		CorrectionSearch search = new CorrectionSearch(2, CorrectionSearch.DEFAULT_BUDGET);
+		List<String> found = search.search("?71111111",
+				alternates("7", "71", "17", "17", "17", "17", "17", "17", "17"));
+		assertEquals(Arrays.asList("711111111", "771111711"), found);
+	}
+
+	@Test
+	public void testSearch_budgetExceeded() throws Exception {
+		CorrectionSearch search = new CorrectionSearch(3, 10);
+		String[] alts = new String[9];
+		Arrays.fill(alts, "596");
+		assertNull(search.search("555555555", alts));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testCorrectionSearch_withInvalidEdits() throws Exception {
+		new CorrectionSearch(0, 10);
+	}
+
+	@Test
+	public void testSearch_withLayout() throws Exception {
+		CorrectionSearch search = new CorrectionSearch();
+		Layout layout = new Layout(4, 3, new int[] {3, 1, 3, 1}, 10);
+		//sum is 3 + 2 + 3 * x + 4, which is a multiple of 10 for x = 7 only.
+		assertTrue(search.search("12?4", alternates("1", "2", "39", "4"), layout).isEmpty());
+		assertEquals(Arrays.asList("1274"), search.search("12?4", alternates("1", "2", "179", "4"), layout));
+	}
+}
@@ -0,0 +1,61 @@
+package com.sg.ocr;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.sg.ocr.fsm.GlyphSet;
+
+public class GlyphScannerTest {
+	private static final String NL = System.lineSeparator();
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testScanLines_hex() throws Exception {
+		GlyphScanner scanner = new GlyphScanner(GlyphSet.hex(), 3);
+		assertEquals("0A-F9", scanner.scanLines(Arrays.asList(
+				" _  _     _  _ ",
+				"| ||_| _ |_ |_|",
+				"|_|| |   |   _|")));
+		//drawings that are not glyphs of the set.
+		assertEquals("?b", scanner.scanLines(Arrays.asList("      ", "| ||_ ", "| ||_|")));
+	}
+
+	@Test
+	public void testScanLines_wideCells() throws Exception {
+		GlyphScanner scanner = new GlyphScanner(GlyphSet.hex(), 4);
+		assertEquals("Ed", scanner.scanLines(Arrays.asList(" _      ", "|_   _| ", "|_  |_| ")));
+	}
+
+	@Test(expected = InvalidDataException.class)
+	public void testScanLines_unequalLines() throws Exception {
+		new GlyphScanner(GlyphSet.hex(), 3).scanLines(Arrays.asList(" _ ", "| |", "|_|   "));
+	}
+
+	@Test
+	public void testScanFile() throws Exception {
+		Path glyphs = folder.newFile().toPath();
+		Files.write(glyphs, Arrays.asList("# letters", "H \"   |_|| |\"", "L \"   |  |_ \""));
+		Path input = folder.newFile().toPath();
+		Files.write(input, Arrays.asList(
+				"          _ ",
+				"|_||  |  | |",
+				"| ||_ |_ |_|",
+				"",
+				"    _ ",
+				"  | _|",
+				"  ||_ "));
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new GlyphScanner(GlyphScanner.glyphSetOf(glyphs.toString()), 3).scanFile(input.toString(), out);
+		assertEquals("HLL0" + NL + "12" + NL, out.toString("UTF-8"));
+	}
+}
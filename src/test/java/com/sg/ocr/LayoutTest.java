@@ -0,0 +1,51 @@
+package com.sg.ocr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class LayoutTest {
+
+	@Test
+	public void testOf() {
+		Layout layout = Layout.of(9);
+		assertEquals(Layout.DEFAULT, layout);
+		assertEquals(27, layout.lineLength());
+		assertEquals(9, layout.weight(0));
+		assertEquals(1, layout.weight(8));
+		assertTrue(layout.checksum("345882865"));
+		assertFalse(layout.checksum("345882866".toCharArray()));
+	}
+
+	@Test
+	public void testForLineLength() {
+		assertSame(Layout.DEFAULT, Layout.DEFAULT.forLineLength(27));
+		assertEquals(Layout.of(12), Layout.DEFAULT.forLineLength(36));
+		assertEquals(Layout.of(16, 4, 10), Layout.of(9, 4, 10).forLineLength(64));
+		//not a whole number of cells, too many digits or no line.
+		assertSame(Layout.DEFAULT, Layout.DEFAULT.forLineLength(28));
+		assertSame(Layout.DEFAULT, Layout.DEFAULT.forLineLength(51));
+		assertSame(Layout.DEFAULT, Layout.DEFAULT.forLineLength(-1));
+		//weights only fit the number of digits they were given for.
+		Layout weighted = new Layout(3, 3, new int[] {1, 3, 1}, 10);
+		assertSame(weighted, weighted.forLineLength(36));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testLayout_withTooManyDigits() {
+		Layout.of(17);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testLayout_withNarrowCells() {
+		Layout.of(9, 2, 11);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testLayout_withMissingWeights() {
+		new Layout(4, 3, new int[] {1, 3, 1}, 10);
+	}
+}
@@ -0,0 +1,59 @@
+package com.sg.ocr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+public class LineValidatorTest {
+	private static final String LEGAL = " |_";
+
+	@Test
+	public void testIsLegal_string() {
+		assertTrue(LineValidator.isLegal(""));
+		assertTrue(LineValidator.isLegal("  | _| _||_||_ |_   ||_||_|"));
+		assertFalse(LineValidator.isLegal("  | _| _||_||_ |.   ||_||_|"));
+		assertFalse(LineValidator.isLegal("  | _| _||_||_ |_   ||_||_\t"));
+		assertFalse(LineValidator.isLegal("\u2502"));
+	}
+
+	@Test
+	public void testIsLegal_everyByteAtEveryPosition() {
+		for(ByteBuffer buffer : new ByteBuffer[] {ByteBuffer.allocate(40), ByteBuffer.allocateDirect(40)}) {
+			for(int length = 0; length <= 30; length++) {
+				//lines starting at unaligned positions, surrounded by illegal bytes that must not be read.
+				int start = length % 5;
+				for(int pos = 0; pos < length; pos++) {
+					for(int b = 0; b < 256; b++) {
+						fillLine(buffer, start, length);
+						buffer.put(start + pos, (byte) b);
+						assertEquals("byte " + b + " at " + pos + " of " + length, LEGAL.indexOf(b) >= 0, 
+								LineValidator.isLegal(buffer, start, length));
+					}
+				}
+				fillLine(buffer, start, length);
+				assertTrue(LineValidator.isLegal(buffer, start, length));
+			}
+		}
+	}
+
+	private static void fillLine(ByteBuffer buffer, int start, int length) {
+		for(int i = 0; i < buffer.capacity(); i++) {
+			buffer.put(i, i >= start && i < start + length ? (byte) LEGAL.charAt(i % LEGAL.length()) : (byte) 'x');
+		}
+	}
+
+	@Test
+	public void testFirstInvalidLine() {
+		ByteBuffer buffer = ByteBuffer.wrap(("    _  _ \n  | _| _|\n  ||_  _|\n  ||_ ._|\n  ||_")
+				.getBytes(StandardCharsets.ISO_8859_1));
+		assertEquals(-1, LineValidator.firstInvalidLine(buffer, new int[] {0, 9, 10, 9, 20, 9}, 0, 9));
+		assertEquals(1, LineValidator.firstInvalidLine(buffer, new int[] {0, 9, 30, 9, 20, 9}, 0, 9));
+		assertEquals(2, LineValidator.firstInvalidLine(buffer, new int[] {0, 0, 0, 9, 10, 9, 40, 5}, 2, 9));
+		assertEquals(2, LineValidator.firstInvalidLine(buffer, new int[] {0, 9, 10, 9, 20, -1}, 0, 9));
+	}
+}
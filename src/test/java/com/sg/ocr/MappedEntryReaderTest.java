@@ -0,0 +1,225 @@
+package com.sg.ocr;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.sg.ocr.SevenSegmentScanner.ScanResult;
+import com.sg.ocr.SevenSegmentScanner.Status;
+
+public class MappedEntryReaderTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private Path writeFile(String content) throws Exception {
+		Path path = folder.newFile().toPath();
+		Files.write(path, content.getBytes(StandardCharsets.ISO_8859_1));
+		return path;
+	}
+
+	@Test
+	public void testNext() throws Exception {
+		Path path = writeFile("abc\nde\nf\n\nghi\n\njk\n");
+		try (MappedEntryReader reader = new MappedEntryReader(path)) {
+			assertTrue(reader.next());
+			assertEquals(1, reader.lineNumber());
+			assertArrayEquals(new int[] {0, 3, 4, 2, 7, 1}, reader.entry());
+			assertTrue(reader.next());
+			assertEquals(5, reader.lineNumber());
+			//empty line and a last line without new line.
+			assertArrayEquals(new int[] {10, 3, 14, 0, 15, 2}, reader.entry());
+			assertFalse(reader.next());
+		}
+	}
+
+	@Test
+	public void testNext_withCarriageReturns() throws Exception {
+		Path path = writeFile("abc\r\nde\r\nf\r\n\r\n");
+		try (MappedEntryReader reader = new MappedEntryReader(path)) {
+			assertTrue(reader.next());
+			assertArrayEquals(new int[] {0, 3, 5, 2, 9, 1}, reader.entry());
+			assertFalse(reader.next());
+		}
+	}
+
+	@Test
+	public void testNext_withMissingLines() throws Exception {
+		Path path = writeFile("abc\nde\n");
+		try (MappedEntryReader reader = new MappedEntryReader(path)) {
+			assertTrue(reader.next());
+			assertEquals(2, reader.entry()[3]);
+			assertEquals(-1, reader.entry()[5]);
+			assertFalse(reader.next());
+		}
+	}
+
+	@Test
+	public void testNext_acrossWindows() throws Exception {
+		StringBuilder sb = new StringBuilder();
+		for(int i = 0; i < 100; i++) {
+			sb.append(i % 10).append("aaaa\nbb\nc\n\n");
+		}
+		Path path = writeFile(sb.toString());
+		try (MappedEntryReader reader = new MappedEntryReader(path, 32)) {
+			for(int i = 0; i < 100; i++) {
+				assertTrue(reader.next());
+				assertEquals(i * 4 + 1, reader.lineNumber());
+				int[] entry = reader.entry();
+				assertEquals('0' + i % 10, reader.buffer().get(entry[0]));
+				assertEquals(5, entry[1]);
+				assertEquals(2, entry[3]);
+				assertEquals(1, entry[5]);
+			}
+			assertFalse(reader.next());
+		}
+	}
+
+	@Test(expected = java.io.IOException.class)
+	public void testNext_withEntryLargerThanWindow() throws Exception {
+		Path path = writeFile("abcdefghijklmnopqrstuvwxyz\nde\nf\n\n");
+		try (MappedEntryReader reader = new MappedEntryReader(path, 16)) {
+			reader.next();
+		}
+	}
+
+	private static final String[] ENTRY_1 = {"    _  _ ", "  | _| _|", "  ||_  _|"};
+	private static final String[] ENTRY_2 = {" _  _    ", "| || |  |", "|_||_|  |"};
+
+	/*
+	 * Lines of entries in the file made of 3 digit entries, with a dropped line, an illegal character,
+	 * a missing separator, a stray line and a line of the wrong length.
+	 */
+	private String messyFile() {
+		return String.join("\n", ENTRY_1[0], ENTRY_1[1], ENTRY_1[2], "",
+				ENTRY_2[0], ENTRY_2[1], "",
+				ENTRY_2[0], "| ||x|  |", ENTRY_2[2], "",
+				ENTRY_2[0], ENTRY_2[1], ENTRY_2[2],
+				ENTRY_1[0], ENTRY_1[1], ENTRY_1[2], "",
+				ENTRY_1[1], ENTRY_2[0], ENTRY_2[1], ENTRY_2[2], "", 
+				"garbage", ENTRY_1[0], ENTRY_1[1], ENTRY_1[2]) + "\n";
+	}
+
+	private String readTolerantly(Path path, int windowSize) throws Exception {
+		return readTolerantly(path, windowSize, 0, 1);
+	}
+
+	private String readTolerantly(Path path, int windowSize, long offset, int lineNumber) throws Exception {
+		StringBuilder sb = new StringBuilder();
+		try (MappedEntryReader reader = new MappedEntryReader(path, windowSize, 9, 
+				(line, reason, text) -> sb.append(line).append(" ").append(reason).append("\n"))) {
+			if(offset > 0)
+				reader.seek(offset, lineNumber);
+			while(reader.next()) {
+				int[] entry = reader.entry();
+				sb.append(reader.lineNumber()).append(" entry ").append((char) reader.buffer().get(entry[2] + 2)).append("\n");
+			}
+		}
+		return sb.toString();
+	}
+
+	@Test
+	public void testNext_tolerant() throws Exception {
+		String expected = "1 entry |\n"
+				+ "5 Incomplete entry\n6 Incomplete entry\n"
+				+ "8 Incomplete entry\n9 Illegal characters\n10 Not the first line of an entry\n"
+				+ "12 entry |\n15 entry |\n"
+				+ "19 Not the first line of an entry\n20 entry |\n"
+				+ "24 Unexpected number of characters\n25 entry |\n";
+		assertEquals(expected, readTolerantly(writeFile(messyFile()), 1 << 20));
+	}
+
+	@Test
+	public void testNext_tolerantAcrossWindows() throws Exception {
+		Path path = writeFile(messyFile());
+		String expected = readTolerantly(path, 1 << 20);
+		for(int windowSize = 40; windowSize < 120; windowSize += 7) {
+			assertEquals("window size " + windowSize, expected, readTolerantly(path, windowSize));
+		}
+	}
+
+	@Test
+	public void testNext_tolerantWithIncompleteLastEntry() throws Exception {
+		Path path = writeFile(ENTRY_1[0] + "\n" + ENTRY_1[1]);
+		assertEquals("1 Incomplete entry\n2 Incomplete entry\n", readTolerantly(path, 1 << 20));
+	}
+
+	@Test
+	public void testNext_tolerantWithSegmentOnTopLine() throws Exception {
+		//stray segment next to the top segment of the second digit, first and last entries.
+		String flipped = "    _| _ ";
+		Path path = writeFile(String.join("\n", flipped, ENTRY_1[1], ENTRY_1[2], "",
+				ENTRY_2[0], ENTRY_2[1], ENTRY_2[2], "",
+				flipped, ENTRY_1[1], ENTRY_1[2]));
+		assertEquals("1 entry |\n5 entry |\n9 entry |\n", readTolerantly(path, 1 << 20));
+		SevenSegmentScanner scanner = new SevenSegmentScanner(3);
+		try (MappedEntryReader reader = new MappedEntryReader(path, 1 << 20, 9, (line, reason, text) -> {})) {
+			assertTrue(reader.next());
+			int[] entry = reader.entry();
+			ScanResult result = scanner.scanLines(reader.buffer(), entry[0], entry[2], entry[4], false, false);
+			assertEquals(Status.ILL, result.getStatus());
+			assertEquals("1?3", result.getAccountNumber());
+		}
+	}
+
+	@Test
+	public void testSeek() throws Exception {
+		Path path = writeFile("abc\nde\nf\n\nghi\n\njk\n\nlm\nn\no\n");
+		long offset;
+		int lineNumber;
+		try (MappedEntryReader reader = new MappedEntryReader(path)) {
+			reader.next();
+			offset = reader.offset();
+			lineNumber = reader.nextLineNumber();
+		}
+		assertEquals(10, offset);
+		assertEquals(5, lineNumber);
+		try (MappedEntryReader reader = new MappedEntryReader(path)) {
+			reader.seek(offset, lineNumber);
+			assertTrue(reader.next());
+			assertEquals(5, reader.lineNumber());
+			assertEquals('g', reader.buffer().get(reader.entry()[0]));
+			assertTrue(reader.next());
+			assertEquals(9, reader.lineNumber());
+			assertFalse(reader.next());
+		}
+	}
+
+	@Test
+	public void testSeek_tolerant() throws Exception {
+		Path path = writeFile(messyFile());
+		String expected = readTolerantly(path, 1 << 20);
+		List<long[]> positions = new ArrayList<>();
+		try (MappedEntryReader reader = new MappedEntryReader(path, 1 << 20, 9, (lineNumber, reason, line) -> {})) {
+			while(reader.next()) {
+				positions.add(new long[] {reader.offset(), reader.nextLineNumber()});
+			}
+		}
+		assertEquals(5, positions.size());
+		int entryEnd = 0;
+		for(long[] position : positions) {
+			//reading from after an entry gives what follows the entry when reading from the start.
+			entryEnd = expected.indexOf(" entry |\n", entryEnd) + " entry |\n".length();
+			assertEquals(expected.substring(entryEnd), readTolerantly(path, 64, position[0], (int) position[1]));
+		}
+	}
+
+	@Test
+	public void testFirstLineLength() throws Exception {
+		assertEquals(3, MappedEntryReader.firstLineLength(writeFile("abc\nde\n")));
+		assertEquals(3, MappedEntryReader.firstLineLength(writeFile("abc\r\nde\r\n")));
+		assertEquals(2, MappedEntryReader.firstLineLength(writeFile("ab")));
+		assertEquals(-1, MappedEntryReader.firstLineLength(writeFile("")));
+	}
+}
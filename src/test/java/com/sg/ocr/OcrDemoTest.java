@@ -2,20 +2,36 @@ package com.sg.ocr;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import com.sg.ocr.SevenSegmentScanner.ScanResult;
 
 public class OcrDemoTest {
 
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
 	
 
 	@Test
@@ -37,6 +53,218 @@ public class OcrDemoTest {
 		
 	}
 
+	@Test
+	public void testScan_withConsumer() throws Exception {
+		String lines = "    _  _     _  _  _  _  _ " + System.lineSeparator();
+		      lines += "  | _| _||_||_ |_   ||_||_|" + System.lineSeparator();
+		      lines += "  ||_  _|  | _||_|  ||_| _|" + System.lineSeparator();
+		      lines += System.lineSeparator();
+		      lines += " _     _  _     _  _  _  _ " + System.lineSeparator();
+		      lines += "| |  | _| _||_||_ |_   ||_|" + System.lineSeparator();
+		      lines += "|_|  ||_  _|  | _||_|  ||_|" + System.lineSeparator(); 
+		
+		ByteArrayInputStream in = new ByteArrayInputStream(lines.getBytes());
+		OcrDemo ocrdemo = new OcrDemo();
+		List<String> numbers = new ArrayList<>();
+		ocrdemo.scan(new InputStreamReader(in), new HashSet<>(Arrays.asList("-verify")), 
+				r -> numbers.add(r.toString()));
+		assertEquals(Arrays.asList("123456789", "012345678 ERR"), numbers);
+	}
+
+	@Test
+	public void testScan_withThreads() throws Exception {
+		StringBuilder sb = new StringBuilder();
+		for(int i = 0; i < 100; i++) {
+			sb.append(new String(Files.readAllBytes(Paths.get(getClass().getResource("/user_story4.txt").toURI()))));
+			sb.append(System.lineSeparator());
+		}
+		Set<String> options = new HashSet<>(Arrays.asList("-verify", "-fix"));
+		List<ScanResult> expected = new OcrDemo().scan(new InputStreamReader(new ByteArrayInputStream(sb.toString().getBytes())), options);
+		List<ScanResult> results;
+		try(OcrDemo ocrdemo = new OcrDemo(4)) {
+			results = ocrdemo.scan(new InputStreamReader(new ByteArrayInputStream(sb.toString().getBytes())), options);
+		}
+		assertEquals(1200, results.size());
+		for(int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.get(i).toString(), results.get(i).toString());
+		}
+	}
+
+	@Test
+	public void testScanFile_withThreads() throws Exception {
+		String path = Paths.get(getClass().getResource("/user_story4.txt").toURI()).toString();
+		Set<String> options = new HashSet<>(Arrays.asList("-verify", "-fix"));
+		List<ScanResult> expected = new OcrDemo().scan(new InputStreamReader(new FileInputStream(path)), options);
+		List<ScanResult> results;
+		try(OcrDemo ocrdemo = new OcrDemo(2)) {
+			results = ocrdemo.scanFile(path, options);
+		}
+		assertEquals(12, results.size());
+		for(int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.get(i).toString(), results.get(i).toString());
+		}
+	}
+
+	@Test
+	public void testScanFile_withInvalidLine() throws Exception {
+		String lines = "    _  _     _  _  _  _  _ " + System.lineSeparator();
+		      lines += "  | _| _||_||_ |_   ||_||_|" + System.lineSeparator();
+		      lines += "  ||_  _|  | _||_|  ||_| _|" + System.lineSeparator();
+		      lines += System.lineSeparator();
+		      lines += " _     _  _     _  _  _  _ " + System.lineSeparator();
+		      lines += "| |  | _| _||_||_ |.   ||_|" + System.lineSeparator();
+		      lines += "|_|  ||_  _|  | _||_|  ||_|" + System.lineSeparator(); 
+		File file = folder.newFile();
+		Files.write(file.toPath(), lines.getBytes());
+		try {
+			new OcrDemo().scanFile(file.getPath(), Collections.emptySet());
+			fail("Expected exception to be thrown when lines contain errors");
+		} catch (RuntimeException e) {
+			assertEquals("Error scanning line 6", e.getMessage());
+		}
+	}
+
+	@Test
+	public void testScanFile_tolerantWithInvalidLine() throws Exception {
+		String lines = " _     _  _     _  _  _  _ " + System.lineSeparator();
+		      lines += "| |  | _| _||_||_ |.   ||_|" + System.lineSeparator();
+		      lines += "|_|  ||_  _|  | _||_|  ||_|" + System.lineSeparator(); 
+		      lines += System.lineSeparator();
+		      lines += "    _  _     _  _  _  _  _ " + System.lineSeparator();
+		      lines += "  | _| _||_||_ |_   ||_||_|" + System.lineSeparator();
+		      lines += "  ||_  _|  | _||_|  ||_| _|" + System.lineSeparator();
+		File file = folder.newFile();
+		Files.write(file.toPath(), lines.getBytes());
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (RejectLog rejects = new RejectLog(new PrintStream(bytes));
+				OcrDemo ocrDemo = new OcrDemo(1, new CorrectionSearch(), ScanMetrics.DISABLED, null, rejects)) {
+			List<ScanResult> results = ocrDemo.scanFile(file.getPath(), new HashSet<>(Arrays.asList("-tolerant")));
+			assertEquals(1, results.size());
+			assertEquals("123456789", results.get(0).getAccountNumber());
+			assertEquals(3, rejects.count());
+		}
+		String[] rejected = bytes.toString().split(System.lineSeparator());
+		assertEquals(file.getPath() + "\t1\tIncomplete entry\t _     _  _     _  _  _  _ ", rejected[0]);
+		assertEquals(file.getPath() + "\t2\tIllegal characters\t| |  | _| _||_||_ |.   ||_|", rejected[1]);
+		assertEquals(file.getPath() + "\t3\tNot the first line of an entry\t|_|  ||_  _|  | _||_|  ||_|", rejected[2]);
+	}
+
+	@Test
+	public void testScanFile_fromPipe() throws Exception {
+		File fifo = new File(folder.getRoot(), "pipe");
+		Process mkfifo = new ProcessBuilder("mkfifo", fifo.getPath()).start();
+		assumeTrue("mkfifo is needed to make a pipe", mkfifo.waitFor() == 0);
+		byte[] lines = Files.readAllBytes(Paths.get(getClass().getResource("/user_story4.txt").toURI()));
+		Thread writer = new Thread(() -> {
+			try {
+				Files.write(fifo.toPath(), lines);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		});
+		writer.start();
+		Set<String> options = new HashSet<>(Arrays.asList("-verify", "-fix"));
+		List<ScanResult> expected = new OcrDemo().scan(new InputStreamReader(new ByteArrayInputStream(lines)), options);
+		List<ScanResult> results = new OcrDemo().scanFile(fifo.getPath(), options);
+		writer.join();
+		assertEquals(12, results.size());
+		for(int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.get(i).toString(), results.get(i).toString());
+		}
+	}
+
+	@Test
+	public void testScanFile_fromCheckpoint() throws Exception {
+		StringBuilder sb = new StringBuilder();
+		for(int i = 0; i < 200; i++) {
+			sb.append(new String(Files.readAllBytes(Paths.get(getClass().getResource("/user_story4.txt").toURI()))));
+			sb.append(System.lineSeparator());
+		}
+		File file = folder.newFile();
+		Files.write(file.toPath(), sb.toString().getBytes());
+		Set<String> options = new HashSet<>(Arrays.asList("-verify", "-fix"));
+		List<String> expected = new ArrayList<>();
+		new OcrDemo().scanFile(file.getPath(), options, r -> expected.add(r.toString()));
+		for(int threads : new int[] {1, 3}) {
+			List<String> results = new ArrayList<>();
+			Checkpoint[] checkpoint = new Checkpoint[1];
+			try(OcrDemo ocrdemo = new OcrDemo(threads)) {
+				ocrdemo.scanFile(file.getPath(), options, r -> results.add(r.toString()), null, (offset, lineNumber, entries) -> {
+					if(checkpoint[0] == null && entries >= 1000)
+						checkpoint[0] = new Checkpoint(file.getPath(), offset, lineNumber, entries, results.size());
+				});
+				assertEquals(expected, results);
+				//scan carries on from the checkpoint, as if the results after it had not been handed over.
+				List<String> resumed = new ArrayList<>(results.subList(0, (int) checkpoint[0].getOutputPosition()));
+				ocrdemo.scanFile(file.getPath(), options, r -> resumed.add(r.toString()), checkpoint[0], (offset, lineNumber, entries) -> {});
+				assertEquals(expected, resumed);
+			}
+		}
+	}
+
+	@Test
+	public void testScanFile_fromCheckpointWithRejects() throws Exception {
+		String entry = new String(Files.readAllBytes(Paths.get(getClass().getResource("/user_story1.txt").toURI())));
+		StringBuilder sb = new StringBuilder();
+		for(int i = 0; i < 50; i++) {
+			sb.append(entry);
+			sb.append(System.lineSeparator());
+			sb.append("rejected ").append(i).append(System.lineSeparator());
+		}
+		File file = folder.newFile();
+		Files.write(file.toPath(), sb.toString().getBytes());
+		Set<String> options = new HashSet<>(Arrays.asList("-tolerant"));
+		File expected = folder.newFile();
+		try (RejectLog rejects = new RejectLog(expected.toPath());
+				OcrDemo ocrDemo = new OcrDemo(1, new CorrectionSearch(), ScanMetrics.DISABLED, null, rejects)) {
+			ocrDemo.scanFile(file.getPath(), options);
+		}
+		//scan is stopped at the checkpoint, as if killed there, and carried on with the log appended to.
+		File log = folder.newFile();
+		Checkpoint[] checkpoint = new Checkpoint[1];
+		try (RejectLog rejects = new RejectLog(log.toPath());
+				OcrDemo ocrDemo = new OcrDemo(1, new CorrectionSearch(), ScanMetrics.DISABLED, null, rejects)) {
+			ocrDemo.scanFile(file.getPath(), options, r -> {}, null, (offset, lineNumber, entries) -> {
+				if(entries >= 300) {
+					checkpoint[0] = new Checkpoint(file.getPath(), offset, lineNumber, entries, 0);
+					throw new IllegalStateException("Killed");
+				}
+			});
+			fail("Expected scan to be stopped at the checkpoint");
+		} catch (IllegalStateException e) {
+			assertEquals("Killed", e.getMessage());
+		}
+		try (RejectLog rejects = new RejectLog(log.toPath(), true);
+				OcrDemo ocrDemo = new OcrDemo(1, new CorrectionSearch(), ScanMetrics.DISABLED, null, rejects)) {
+			ocrDemo.scanFile(file.getPath(), options, r -> {}, checkpoint[0], (offset, lineNumber, entries) -> {});
+		}
+		List<String> rejected = Files.readAllLines(log.toPath());
+		assertEquals(50, rejected.size());
+		assertEquals(Files.readAllLines(expected.toPath()), rejected);
+	}
+
+	@Test
+	public void testScanFile_detectsLayout() throws Exception {
+		String lines = " _  _  _  _  _  _  _  _        _  _ " + System.lineSeparator();
+		      lines += "| | _||_ | || || | _||_|  ||_||_  _|" + System.lineSeparator();
+		      lines += "|_| _||_||_||_||_||_  _|  |  | _||_ " + System.lineSeparator();
+		      lines += System.lineSeparator();
+		File file = folder.newFile();
+		Files.write(file.toPath(), (lines + lines).getBytes());
+		Set<String> options = new HashSet<>(Arrays.asList("-verify"));
+		try (OcrDemo ocrDemo = new OcrDemo(1, new CorrectionSearch(), ScanMetrics.DISABLED, null, new RejectLog(System.err), 
+				Layout.DEFAULT, true)) {
+			List<ScanResult> results = ocrDemo.scanFile(file.getPath(), options);
+			assertEquals(2, results.size());
+			assertEquals("036000291452 ERR", results.get(0).toString());
+			results = ocrDemo.scan(new InputStreamReader(new ByteArrayInputStream(lines.getBytes())), options);
+			assertEquals("036000291452 ERR", results.get(0).toString());
+			//account numbers are still scanned with the layout given.
+			results = ocrDemo.scanFile(Paths.get(getClass().getResource("/user_story1.txt").toURI()).toString(), options);
+			assertEquals(11, results.size());
+		}
+	}
+
 	@Test
 	public void testVerifyLines_withValidLines() throws Exception {
 		String line1 = "    _  _     _  _  _  _  _ ";
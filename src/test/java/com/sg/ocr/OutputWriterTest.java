@@ -0,0 +1,151 @@
+package com.sg.ocr;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.sg.ocr.SevenSegmentScanner.ScanResult;
+import com.sg.ocr.SevenSegmentScanner.Status;
+
+public class OutputWriterTest {
+
+	private static final String NL = System.lineSeparator();
+
+	private List<ScanResult> scanResults() {
+		SevenSegmentScanner scanner = new SevenSegmentScanner(9);
+		ScanResult valid = scanner.scanLines(Arrays.asList(
+				"    _  _     _  _  _  _  _ ",
+				"  | _| _||_||_ |_   ||_||_|",
+				"  ||_  _|  | _||_|  ||_| _|"), true);
+		ScanResult invalid = scanner.scanLines(Arrays.asList(
+				" _     _  _     _  _  _  _ ",
+				"| |  | _| _||_||_ |_   ||_|",
+				"|_|  ||_  _|  | _||_|  ||_|"), true);
+		return Arrays.asList(invalid, valid, invalid);
+	}
+
+	private String print(boolean group, boolean detailed) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		OutputWriter writer = new OutputWriter(group, detailed, new PrintStream(bytes));
+		writer.print(scanResults());
+		return bytes.toString();
+	}
+
+	@Test
+	public void testPrint_simple() throws Exception {
+		assertEquals("012345678" + NL + "123456789" + NL + "012345678" + NL + NL, print(false, false));
+	}
+
+	@Test
+	public void testPrint_detailed() throws Exception {
+		assertEquals("012345678 ERR" + NL + "123456789" + NL + "012345678 ERR" + NL + NL, print(true, true));
+	}
+
+	@Test
+	public void testPrint_grouped() throws Exception {
+		String expected = "Valid:" + NL + "123456789" + NL + NL 
+				+ "Invalid:" + NL + "012345678" + NL + "012345678" + NL + NL;
+		assertEquals(expected, print(true, false));
+	}
+
+	@Test
+	public void testPrint_groupedWithNoResults() throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		new OutputWriter(true, false, new PrintStream(bytes)).close();
+		assertEquals("Valid:" + NL + NL + "Invalid:" + NL + NL, bytes.toString());
+	}
+
+	@Test
+	public void testWrite_toChannelBeyondBuffer() throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		OutputWriter writer = new OutputWriter(true, false, Channels.newChannel(bytes));
+		List<ScanResult> scanned = scanResults();
+		List<ScanResult> results = new ArrayList<>();
+		StringBuilder valid = new StringBuilder();
+		StringBuilder invalid = new StringBuilder();
+		for(int i = 0; i < 10000; i++) {
+			results.addAll(scanned);
+			valid.append("123456789").append(NL);
+			invalid.append("012345678").append(NL).append("012345678").append(NL);
+		}
+		writer.print(results);
+		assertEquals("Valid:" + NL + valid + NL + "Invalid:" + NL + invalid + NL, bytes.toString());
+	}
+
+	private byte[] write(OutputWriter.Format format, List<ScanResult> results) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		OutputWriter writer = new OutputWriter(format, true, true, bytes);
+		writer.print(results);
+		return bytes.toByteArray();
+	}
+
+	private ScanResult ambiguousResult() {
+		SevenSegmentScanner scanner = new SevenSegmentScanner(9);
+		ScanResult scanResult = scanner.scanLines(Arrays.asList(
+				" _  _  _  _  _  _  _  _  _ ",
+				"|_ |_ |_ |_ |_ |_ |_ |_ |_ ",
+				" _| _| _| _| _| _| _| _| _|"), true);
+		return scanner.tryFixingForErrorDigits(scanResult);
+	}
+
+	@Test
+	public void testWrite_csv() throws Exception {
+		String expected = "account_number,status,candidates" + NL + "012345678,ERR," + NL + "123456789,OK," + NL 
+				+ "555555555,AMB,559555555;555655555" + NL;
+		List<ScanResult> results = new ArrayList<>(scanResults().subList(0, 2));
+		results.add(ambiguousResult());
+		assertEquals(expected, new String(write(OutputWriter.Format.CSV, results), "UTF-8"));
+	}
+
+	@Test
+	public void testWrite_jsonLines() throws Exception {
+		String expected = "{\"accountNumber\":\"123456789\",\"status\":\"OK\",\"candidates\":[]}" + NL 
+				+ "{\"accountNumber\":\"555555555\",\"status\":\"AMB\",\"candidates\":[\"559555555\",\"555655555\"]}" + NL;
+		List<ScanResult> results = Arrays.asList(scanResults().get(1), ambiguousResult());
+		assertEquals(expected, new String(write(OutputWriter.Format.JSONL, results), "UTF-8"));
+	}
+
+	@Test
+	public void testWrite_binary() throws Exception {
+		List<ScanResult> results = Arrays.asList(scanResults().get(1), scanResults().get(0), ambiguousResult());
+		byte[] expected = {
+				0x12, 0x34, 0x56, 0x78, (byte) 0x90,
+				0x01, 0x23, 0x45, 0x67, (byte) 0x82,
+				0x55, 0x55, 0x55, 0x55, 0x53, 2,
+				0x55, (byte) 0x95, 0x55, 0x55, 0x50,
+				0x55, 0x56, 0x55, 0x55, 0x50};
+		assertArrayEquals(expected, write(OutputWriter.Format.BINARY, results));
+	}
+
+	@Test
+	public void testWrite_binaryWithManyCandidates() throws Exception {
+		SevenSegmentScanner scanner = new SevenSegmentScanner(9, new CorrectionSearch(4, 10000000));
+		ScanResult scanResult = scanner.scanLines(Arrays.asList(
+				" _  _  _  _  _  _  _  _  _ ",
+				"|_||_||_||_||_||_||_||_||_|",
+				"|_||_||_||_||_||_||_||_||_|"), true, true);
+		assertEquals(Status.AMB, scanResult.getStatus());
+		int count = scanResult.getPackedCandidates().length;
+		assertTrue(count > 255);
+		byte[] bytes = write(OutputWriter.Format.BINARY, Arrays.asList(scanResult, scanResults().get(1)));
+		//count as a varint after the 5 bytes of the number, then the candidates and the next record.
+		assertEquals(count & 0x7F | 0x80, bytes[5] & 0xFF);
+		assertEquals(count >>> 7, bytes[6]);
+		assertEquals(7 + count * 5 + 5, bytes.length);
+		assertArrayEquals(new byte[] {0x12, 0x34, 0x56, 0x78, (byte) 0x90}, Arrays.copyOfRange(bytes, bytes.length - 5, bytes.length));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testFormat_unknown() throws Exception {
+		OutputWriter.Format.of("xml");
+	}
+}
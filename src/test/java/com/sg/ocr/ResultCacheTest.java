@@ -0,0 +1,57 @@
+package com.sg.ocr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.sg.ocr.SevenSegmentScanner.ScanResult;
+
+public class ResultCacheTest {
+	private static final List<String> ENTRY = Arrays.asList(
+			" _  _  _  _  _  _  _  _  _ ",
+			"|_ |_ |_ |_ |_ |_ |_ |_ |_ ",
+			" _| _| _| _| _| _| _| _| _|");
+
+	@Test
+	public void testGet_evictsLeastRecentlyUsed() throws Exception {
+		SevenSegmentScanner scanner = new SevenSegmentScanner(9);
+		ScanResult result = scanner.scanLines(ENTRY);
+		ResultCache cache = new ResultCache(2);
+		cache.put("a", result);
+		cache.put("b", result);
+		cache.get("a");
+		cache.put("c", result);
+		assertSame(result, cache.get("a"));
+		assertNull(cache.get("b"));
+		assertSame(result, cache.get("c"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNew_withNoCapacity() throws Exception {
+		new ResultCache(0);
+	}
+
+	@Test
+	public void testScanLines_withCache() throws Exception {
+		ScanMetrics metrics = new ScanMetrics();
+		SevenSegmentScanner scanner = new SevenSegmentScanner(9, new CorrectionSearch(), metrics, new ResultCache(10));
+		ScanResult first = scanner.scanLines(ENTRY, true, true);
+		ScanResult second = scanner.scanLines(ENTRY, true, true);
+		assertSame(first, second);
+		assertEquals("555555555 AMB ['559555555', '555655555']", second.getErrorMsg());
+		//options are part of the key.
+		ScanResult unverified = scanner.scanLines(ENTRY, false, false);
+		assertNotSame(first, unverified);
+		assertNull(unverified.getErrorMsg());
+		String json = metrics.toJson();
+		assertTrue(json, json.contains("\"cache\":{\"hits\":1,\"misses\":2}"));
+		assertTrue(json, json.contains("\"AMB\":2"));
+	}
+}
@@ -0,0 +1,76 @@
+package com.sg.ocr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ScanMetricsTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testRecordResult() throws Exception {
+		ScanMetrics metrics = new ScanMetrics();
+		SevenSegmentScanner scanner = new SevenSegmentScanner(9, new CorrectionSearch(), metrics);
+		scanner.scanLines(Arrays.asList(
+				"    _  _     _  _  _  _  _ ",
+				"  | _| _||_||_ |_   ||_||_|",
+				"  ||_  _|  | _||_|  ||_| _|"), true, true);
+		scanner.scanLines(Arrays.asList(
+				" _  _  _  _  _  _  _  _  _ ",
+				"|_ |_ |_ |_ |_ |_ |_ |_ |_ ",
+				" _| _| _| _| _| _| _| _| _|"), true, true);
+		scanner.scanLines(Arrays.asList(
+				" _  _  _  _  _  _  _  _  _ ",
+				"|_ |_ |_ |_ |_ |_ |_ |_ |_ ",
+				" _| _| _| _| _| _| _| _|  |"), true, false);
+		assertEquals(3, metrics.entries());
+		String json = metrics.toJson();
+		assertTrue(json, json.contains("\"results\":{\"OK\":1,\"ILL\":1,\"ERR\":0,\"AMB\":1}"));
+		assertTrue(json, json.contains("\"fix\":{\"attempts\":1,\"fixed\":0}"));
+		assertTrue(json, json.contains("\"decode\":{\"count\":3,"));
+		assertTrue(json, json.contains("\"fix\":{\"count\":1,"));
+	}
+
+	@Test
+	public void testDisabled() throws Exception {
+		ScanMetrics metrics = ScanMetrics.DISABLED;
+		assertFalse(metrics.isEnabled());
+		assertEquals(0, metrics.start());
+		metrics.record(ScanMetrics.Stage.READ, 0);
+		assertTrue(metrics.toJson().contains("\"read\":{\"count\":0,"));
+	}
+
+	@Test
+	public void testHistogramPercentile() throws Exception {
+		ScanMetrics.Histogram histogram = new ScanMetrics.Histogram();
+		for(int i = 0; i < 99; i++) {
+			histogram.add(100);
+		}
+		histogram.add(5000);
+		assertEquals(100, histogram.count());
+		assertEquals(127, histogram.percentile(50));
+		assertEquals(127, histogram.percentile(99));
+		assertEquals(8191, histogram.percentile(100));
+	}
+
+	@Test
+	public void testWriteTo() throws Exception {
+		ScanMetrics metrics = new ScanMetrics();
+		Path path = folder.getRoot().toPath().resolve("metrics.json");
+		metrics.writeTo(path);
+		metrics.writeTo(path);
+		String json = new String(Files.readAllBytes(path)).trim();
+		assertTrue(json.startsWith("{\"elapsedMillis\":"));
+		assertTrue(json.endsWith("}}"));
+	}
+}
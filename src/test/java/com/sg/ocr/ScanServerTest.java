@@ -0,0 +1,101 @@
+package com.sg.ocr;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ScanServerTest {
+	private static final String ENTRIES = "    _  _     _  _  _  _  _ " + System.lineSeparator()
+			+ "  | _| _||_||_ |_   ||_||_|" + System.lineSeparator()
+			+ "  ||_  _|  | _||_|  ||_| _|" + System.lineSeparator()
+			+ System.lineSeparator()
+			+ "                           " + System.lineSeparator()
+			+ "  |  |  |  |  |  |  |  |  |" + System.lineSeparator()
+			+ "  |  |  |  |  |  |  |  |  |" + System.lineSeparator();
+
+	private OcrDemo ocrDemo;
+	private ScanServer server;
+
+	@Before
+	public void setUp() throws Exception {
+		ocrDemo = new OcrDemo();
+		server = new ScanServer(ocrDemo, Collections.emptySet(), 0, 2);
+		server.start();
+	}
+
+	@After
+	public void tearDown() {
+		server.close();
+		ocrDemo.close();
+	}
+
+	@Test
+	public void testScan() throws Exception {
+		assertEquals("123456789" + System.lineSeparator() + "111111111" + System.lineSeparator() + System.lineSeparator(),
+				post("", ENTRIES, 200));
+	}
+
+	@Test
+	public void testScan_withOptions() throws Exception {
+		String expected = "123456789" + System.lineSeparator()
+				+ "711111111" + System.lineSeparator() + System.lineSeparator();
+		assertEquals(expected, post("?verify&detailed&fix", ENTRIES, 200));
+		//server stays usable after a request.
+		assertEquals(expected, post("?verify&detailed&fix", ENTRIES, 200));
+	}
+
+	@Test
+	public void testScan_withUnknownOption() throws Exception {
+		assertEquals("Error: Unknown option threads" + System.lineSeparator(), post("?threads", ENTRIES, 400));
+	}
+
+	@Test
+	public void testScan_withOptionValues() throws Exception {
+		assertEquals(post("", ENTRIES, 200), post("?verify=false&fix=false", ENTRIES, 200));
+		assertEquals(post("?verify&detailed&fix", ENTRIES, 200), post("?verify=true&detailed=TRUE&fix=true", ENTRIES, 200));
+		assertEquals("Error: Invalid value yes for option fix" + System.lineSeparator(), post("?fix=yes", ENTRIES, 400));
+	}
+
+	@Test
+	public void testScan_withFormat() throws Exception {
+		server.close();
+		server = new ScanServer(ocrDemo, Collections.singleton("-verify"), OutputWriter.Format.CSV, 0, 2);
+		server.start();
+		assertEquals("account_number,status,candidates" + System.lineSeparator() + "123456789,OK," + System.lineSeparator()
+				+ "111111111,ERR," + System.lineSeparator(), post("", ENTRIES, 200));
+	}
+
+	@Test
+	public void testScan_withInvalidLine() throws Exception {
+		assertEquals("Error while scanning - Error scanning line 1" + System.lineSeparator(), post("", "a" + ENTRIES, 400));
+	}
+
+	private String post(String query, String body, int expectedStatus) throws Exception {
+		HttpURLConnection connection = (HttpURLConnection) new URL(
+				"http://localhost:" + server.getPort() + ScanServer.SCAN_PATH + query).openConnection();
+		connection.setRequestMethod("POST");
+		connection.setDoOutput(true);
+		try (OutputStream out = connection.getOutputStream()) {
+			out.write(body.getBytes(StandardCharsets.UTF_8));
+		}
+		assertEquals(expectedStatus, connection.getResponseCode());
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (InputStream in = expectedStatus == 200 ? connection.getInputStream() : connection.getErrorStream()) {
+			byte[] buffer = new byte[4096];
+			for(int n; (n = in.read(buffer)) > 0; ) {
+				bytes.write(buffer, 0, n);
+			}
+		}
+		return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+	}
+}
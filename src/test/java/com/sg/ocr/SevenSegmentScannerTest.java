@@ -6,6 +6,7 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -125,6 +126,58 @@ public class SevenSegmentScannerTest {
 		assertFalse(scanner.checksum("012345678"));
 	}
 	
+	@Test
+	public void testChecksum_withCharArray() throws Exception {
+		SevenSegmentScanner scanner = new SevenSegmentScanner(9);
+		assertTrue(scanner.checksum("490867715".toCharArray()));
+		assertFalse(scanner.checksum("490067715".toCharArray()));
+	}
+	
+	@Test
+	public void testChecksum_withBatch() throws Exception {
+		SevenSegmentScanner scanner = new SevenSegmentScanner(9);
+		int[] numbers = {711111111, 123456789, 888888888, 490867715, 12345678, 0};
+		boolean[] valid = new boolean[numbers.length];
+		assertEquals(4, scanner.checksum(numbers, valid));
+		assertTrue(Arrays.equals(new boolean[] {true, true, false, true, false, true}, valid));
+		for(int i = 0; i < numbers.length; i++) {
+			assertEquals(scanner.checksum(String.format("%09d", numbers[i])), valid[i]);
+		}
+	}
+	
+	@Test
+	public void testChecksum_withLongBatch() throws Exception {
+		SevenSegmentScanner scanner = new SevenSegmentScanner(16);
+		long[] numbers = {1234567890123456L, 9999999999999999L, 1L, 0L, 4008009000000000L};
+		boolean[] valid = new boolean[numbers.length];
+		int validCount = scanner.checksum(numbers, valid);
+		int expectedCount = 0;
+		for(int i = 0; i < numbers.length; i++) {
+			assertEquals(scanner.checksum(String.format("%016d", numbers[i])), valid[i]);
+			expectedCount += valid[i] ? 1 : 0;
+		}
+		assertEquals(expectedCount, validCount);
+		assertTrue(valid[3]);
+		assertFalse(valid[2]);
+		//same results for numbers that also fit in an int.
+		scanner = new SevenSegmentScanner(9);
+		long[] accountNumbers = {711111111, 123456789, 888888888, 490867715, 12345678, 0};
+		valid = new boolean[accountNumbers.length];
+		assertEquals(4, scanner.checksum(accountNumbers, valid));
+		assertTrue(Arrays.equals(new boolean[] {true, true, false, true, false, true}, valid));
+	}
+
+	@Test
+	public void testChecksum_withBatchOfTooManyDigits() throws Exception {
+		SevenSegmentScanner scanner = new SevenSegmentScanner(10);
+		try {
+			scanner.checksum(new int[] {1234567890}, new boolean[1]);
+			fail("Expected exception to be thrown when numbers do not fit in an int");
+		} catch (IllegalStateException e) {
+			assertEquals("Numbers of 10 digits do not fit in an int", e.getMessage());
+		}
+	}
+	
 	@Test
 	public void testgetAlternateDigits_forFive() throws Exception {
 		String line1 = " _ ";
@@ -151,6 +204,31 @@ public class SevenSegmentScannerTest {
 	}
 
 
+	@Test
+	public void testgetAlternateDigits_matchesStateMachine() throws Exception {
+		SevenSegmentScanner scanner = new SevenSegmentScanner(1);
+		char[] symbols = {' ', '|', '_'};
+		for(int code = 0; code < 19683; code++) {
+			char[] segments = new char[9];
+			for(int i = 8, c = code; i >= 0; i--, c /= 3) {
+				segments[i] = symbols[c % 3];
+			}
+			String chars = new String(segments);
+			List<String> lines = Arrays.asList(chars.substring(0, 3), chars.substring(3, 6), chars.substring(6));
+			List<Character> segmentList = new ArrayList<>();
+			chars.chars().forEach(c -> segmentList.add((char) c));
+			assertEquals(scanner.getAlternateDigits(segmentList), scanner.getAlternateDigits(lines, 0));
+		}
+	}
+	
+	@Test
+	public void testgetAlternateDigits_withIllegalCharacter() throws Exception {
+		SevenSegmentScanner scanner = new SevenSegmentScanner(1);
+		List<String> alts = scanner.getAlternateDigits(Arrays.asList(" _ ", "|_.", " _|"), 0);
+		assertEquals(Arrays.asList("5"), alts);
+	}
+
+
 	@Test
 	public void testTryFixingForIllegalDigits() throws Exception {
 	    String line1 =	"    _  _     _  _  _  _  _ ";
@@ -165,6 +243,24 @@ public class SevenSegmentScannerTest {
 	}
 
 
+	@Test
+	public void testTryFixingForIllegalDigits_withTwoIllegalDigits() throws Exception {
+	    String line1 =	"    _  _     _  _  _  _  _ ";
+	    String line2 =	"    _| _||_||_ |_   | _||_|";
+	    String line3 = 	"  ||_  _|  | _||_|  ||_| _|";
+
+		SevenSegmentScanner scanner = new SevenSegmentScanner(9);
+		ScanResult scanResult = scanner.scanLines(Arrays.asList(line1,line2,line3));
+		assertEquals("?234567?9", scanResult.getAccountNumber());
+		assertEquals("?234567?9", scanner.tryFixingForIllegalDigits(scanResult).getAccountNumber());
+		
+		scanner = new SevenSegmentScanner(9, new CorrectionSearch(2, CorrectionSearch.DEFAULT_BUDGET));
+		ScanResult fixedResult = scanner.tryFixingForIllegalDigits(scanResult);
+		assertEquals("123456789", fixedResult.getAccountNumber());
+		assertNull(fixedResult.getErrorMsg());
+	}
+
+
 	@Test
 	public void testTryFixingForErrorDigits_withAmbResults1() throws Exception {
 		String line1 = " _  _  _  _  _  _  _  _  _ ";
@@ -175,6 +271,8 @@ public class SevenSegmentScannerTest {
 		ScanResult scanResult = scanner.scanLines(Arrays.asList(line1,line2,line3));
 		ScanResult fixedResult = scanner.tryFixingForErrorDigits(scanResult);
 		assertEquals("555555555 AMB ['559555555', '555655555']", fixedResult.getErrorMsg());
+		assertEquals(SevenSegmentScanner.Status.AMB, fixedResult.getStatus());
+		assertEquals(Arrays.asList("559555555", "555655555"), fixedResult.getCandidates());
 	}
 	
 	@Test
@@ -188,6 +286,60 @@ public class SevenSegmentScannerTest {
 		ScanResult fixedResult = scanner.tryFixingForErrorDigits(scanResult);
 		assertEquals("888888888 AMB ['888886888', '888888988', '888888880']", fixedResult.getErrorMsg());
 	}
-	
-}
 
+	@Test
+	public void testScanResult_rebuildsLinesOfValidNumbers() throws Exception {
+		List<String> lines = Arrays.asList(
+				"    _  _     _  _  _  _  _ ",
+				"  | _| _||_||_ |_   ||_||_|",
+				"  ||_  _|  | _||_|  ||_| _|");
+		SevenSegmentScanner scanner = new SevenSegmentScanner(9);
+		ScanResult scanResult = scanner.scanLines(lines, true);
+		assertEquals(SevenSegmentScanner.Status.OK, scanResult.getStatus());
+		assertEquals(0x123456789L, scanResult.getPackedNumber());
+		assertEquals(lines, scanResult.getInputLines());
+	}
+
+	@Test
+	public void testScanResult_packsIllegalDigits() throws Exception {
+		long packed = ScanResult.pack("1234?678?");
+		assertEquals(0x1234F678FL, packed);
+		char[] number = new char[9];
+		ScanResult.unpack(packed, number);
+		assertEquals("1234?678?", new String(number));
+	}
+
+	@Test
+	public void testScanLines_withLayout() throws Exception {
+		//12 digits weighted 3 and 1 in turn, modulus 10.
+		Layout layout = new Layout(12, 3, new int[] {3, 1, 3, 1, 3, 1, 3, 1, 3, 1, 3, 1}, 10);
+		SevenSegmentScanner scanner = new SevenSegmentScanner(layout, new CorrectionSearch(), ScanMetrics.DISABLED, null);
+		ScanResult scanResult = scanner.scanLines(Arrays.asList(
+				" _  _  _  _  _  _  _  _        _  _ ",
+				"| | _||_ | || || | _||_|  ||_||_  _|",
+				"|_| _||_||_||_||_||_  _|  |  | _||_ "), true);
+		assertEquals("036000291452", scanResult.getAccountNumber());
+		assertEquals(SevenSegmentScanner.Status.OK, scanResult.getStatus());
+		scanResult = scanner.scanLines(Arrays.asList(
+				" _  _  _  _  _  _  _  _        _  _ ",
+				"| | _||_ | || || | _||_|  ||_||_ |_|",
+				"|_| _||_||_||_||_||_  _|  |  | _||_|"), true);
+		assertEquals("036000291458 ERR", scanResult.toString());
+		assertTrue(scanner.checksum("036000291452"));
+		assertFalse(scanner.checksum("36000291452"));
+	}
+
+	@Test
+	public void testScanLines_withWideCells() throws Exception {
+		List<String> lines = Arrays.asList(
+				" _       _   _       _   _   _   _   _  ",
+				"| |   |  _|  _| |_| |_  |_    | |_| |_| ",
+				"|_|   | |_   _|   |  _| |_|   | |_|  _| ");
+		SevenSegmentScanner scanner = new SevenSegmentScanner(Layout.of(10, 4, 11), new CorrectionSearch(), ScanMetrics.DISABLED, null);
+		scanner.verifyLine(lines.get(1));
+		ScanResult scanResult = scanner.scanLines(lines, true);
+		assertEquals("0123456789", scanResult.getAccountNumber());
+		assertEquals(SevenSegmentScanner.Status.OK, scanResult.getStatus());
+		assertEquals(lines, scanResult.getInputLines());
+	}
+}
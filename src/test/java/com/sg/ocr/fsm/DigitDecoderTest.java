@@ -0,0 +1,104 @@
+package com.sg.ocr.fsm;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.Test;
+
+public class DigitDecoderTest {
+
+	private DigitDecoder buildDecoder() {
+		FSMBuilder builder = new FSMBuilder();
+		return builder.compile(builder.buildStateMachineForDigits());
+	}
+
+	private String[] toLines(List<Character> segments) {
+		String[] lines = new String[3];
+		for(int i = 0; i < 3; i++) {
+			StringBuilder sb = new StringBuilder();
+			for(int j = 0; j < 3; j++) {
+				sb.append(segments.get(i * 3 + j));
+			}
+			lines[i] = sb.toString();
+		}
+		return lines;
+	}
+
+	@Test
+	public void testDecode_allDigits() throws Exception {
+		DigitDecoder decoder = buildDecoder();
+		for(int i = 0; i < 10; i++) {
+			String[] lines = toLines(FSMBuilder.getSegmentsForDigit(i));
+			assertEquals(Character.forDigit(i, 10), decoder.decode(lines[0], lines[1], lines[2], 0));
+		}
+	}
+
+	@Test
+	public void testDecode_withOffset() throws Exception {
+		DigitDecoder decoder = buildDecoder();
+		assertEquals('2', decoder.decode("    _ ", "  | _|", "  ||_ ", 3));
+	}
+
+	@Test
+	public void testDecode_unknownPattern() throws Exception {
+		DigitDecoder decoder = buildDecoder();
+		assertEquals('?', decoder.decode(" _ ", " _ ", " _|", 0));
+	}
+
+	@Test
+	public void testDecode_illegalCharacter() throws Exception {
+		DigitDecoder decoder = buildDecoder();
+		assertEquals(DigitDecoder.ILLEGAL_CODE, DigitDecoder.codeOf(" _ ", "|.|", "|_|", 0));
+		assertEquals('?', decoder.decode(" _ ", "|.|", "|_|", 0));
+	}
+
+	@Test
+	public void testAlternatesOf() throws Exception {
+		DigitDecoder decoder = buildDecoder();
+		assertEquals("596", decoder.alternatesOf(DigitDecoder.codeOf(" _ ", "|_ ", " _|", 0)));
+		assertEquals("53", decoder.alternatesOf(DigitDecoder.codeOf(" _ ", " _ ", " _|", 0)));
+		assertEquals("", decoder.alternatesOf(DigitDecoder.ILLEGAL_CODE));
+	}
+
+	@Test
+	public void testCodeOf() throws Exception {
+		assertEquals(0, DigitDecoder.codeOf("   ", "   ", "   ", 0));
+		//last character is the least significant.
+		assertEquals(1, DigitDecoder.codeOf("   ", "   ", "  |", 0));
+		assertEquals(2, DigitDecoder.codeOf("   ", "   ", "  _", 0));
+		assertEquals(DigitDecoder.CODE_COUNT - 1, DigitDecoder.codeOf("___", "___", "___", 0));
+	}
+
+	@Test
+	public void testCodesOf() throws Exception {
+		String line1 = "    _  _     _  _  _  _  _ ";
+		String line2 = "  | _| _||_||_ |_   ||_||.|";
+		String line3 = "  ||_  _|  | _||_|  ||_| _|";
+		int[] codes = new int[9];
+		DigitDecoder.codesOf(line1, line2, line3, 3, codes);
+		for(int i = 0; i < codes.length; i++) {
+			assertEquals(DigitDecoder.codeOf(line1, line2, line3, i * 3), codes[i]);
+		}
+		assertEquals(DigitDecoder.ILLEGAL_CODE, codes[8]);
+		char[] digits = new char[9];
+		buildDecoder().valuesOf(codes, digits);
+		assertEquals("12345678?", new String(digits));
+	}
+
+	@Test
+	public void testCodesOf_fromBuffer() throws Exception {
+		//cells 4 characters wide, lines after some other bytes.
+		String lines = "xx" + "     _  " + "  |  _| " + "  | |_  ";
+		ByteBuffer buffer = ByteBuffer.wrap(lines.getBytes(StandardCharsets.ISO_8859_1));
+		int[] codes = new int[2];
+		DigitDecoder.codesOf(buffer, 2, 10, 18, 4, codes);
+		assertEquals(DigitDecoder.codeOf("    ", "  | ", "  | ", 0), codes[0]);
+		assertEquals(DigitDecoder.codeOf(" _  ", " _| ", "|_  ", 0), codes[1]);
+		char[] digits = new char[2];
+		buildDecoder().valuesOf(codes, digits);
+		assertEquals("12", new String(digits));
+	}
+}
@@ -5,6 +5,11 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 import org.junit.Test;
 
 public class FSMBuilderTest {
@@ -41,4 +46,66 @@ public class FSMBuilderTest {
 		assertEquals(ssfsm.getValue(), ssfmCopy.getValue());
 		
 	}
+
+	@Test
+	public void testBuildStateMachineForDigits_acceptsDigitsOnly() throws Exception {
+		FSMBuilder builder = new FSMBuilder();
+		StateGraph graph = builder.buildGraphForDigits();
+		Map<List<Character>, Character> digits = new HashMap<>();
+		for(int i = 0; i < 10; i++) {
+			digits.put(FSMBuilder.getSegmentsForDigit(i), (char) ('0' + i));
+		}
+		for(int code = 0; code < DigitDecoder.CODE_COUNT; code++) {
+			List<Character> segments = new ArrayList<>();
+			for(int weight = DigitDecoder.CODE_COUNT / DigitDecoder.SYMBOL_COUNT; weight > 0; weight /= DigitDecoder.SYMBOL_COUNT) {
+				segments.add(DigitDecoder.SYMBOLS[(code / weight) % DigitDecoder.SYMBOL_COUNT]);
+			}
+			int state = StateGraph.INITIAL;
+			for(char segment : segments) {
+				state = graph.next(state, segment);
+			}
+			Character digit = digits.get(segments);
+			assertEquals(digit != null, graph.isFinal(state));
+			if(digit != null) {
+				assertEquals(digit.charValue(), graph.valueOf(state));
+			}
+		}
+	}
+
+	@Test
+	public void testBuildStateMachineForDigits_isMinimal() throws Exception {
+		FSMBuilder builder = new FSMBuilder();
+		StateGraph trie = builder.graphOf(builder.buildTrie(GlyphSet.DIGITS));
+		StateGraph graph = builder.buildGraphForDigits();
+		assertTrue(graph.stateCount() <= trie.stateCount());
+		//the minimal state machine decodes and fixes digits the same as the one it was built from.
+		DigitDecoder expected = builder.compile(trie);
+		DigitDecoder decoder = builder.compile(graph);
+		for(int code = 0; code < DigitDecoder.CODE_COUNT; code++) {
+			assertEquals(expected.valueOf(code), decoder.valueOf(code));
+			assertEquals(expected.alternatesOf(code), decoder.alternatesOf(code));
+		}
+	}
+
+	@Test
+	public void testMinimize_mergesEquivalentStates() throws Exception {
+		//two ways of drawing a one, ending the same way.
+		SevenSegmentFSM sssm = new SevenSegmentFSM();
+		State pipe = sssm.getIntial().addStateTransform('|');
+		State underscore = sssm.getIntial().addStateTransform('_');
+		pipe.addStateTransform(' ').addStateTransform('|', new State("1", true));
+		underscore.addStateTransform(' ').addStateTransform('|', new State("1", true));
+		FSMBuilder builder = new FSMBuilder();
+		assertEquals(7, builder.graphOf(sssm).stateCount());
+		StateGraph graph = builder.graphOf(builder.minimize(sssm));
+		assertEquals(4, graph.stateCount());
+		for(String segments : new String[] {"| |", "_ |"}) {
+			int state = StateGraph.INITIAL;
+			for(char segment : segments.toCharArray()) {
+				state = graph.next(state, segment);
+			}
+			assertEquals('1', graph.valueOf(state));
+		}
+		assertEquals(StateGraph.ERROR, graph.next(graph.next(StateGraph.INITIAL, '|'), '|'));
+	}
 }
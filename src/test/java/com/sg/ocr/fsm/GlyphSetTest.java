@@ -0,0 +1,85 @@
+package com.sg.ocr.fsm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.junit.Test;
+
+public class GlyphSetTest {
+
+	@Test
+	public void testDigits() throws Exception {
+		assertEquals(10, GlyphSet.DIGITS.size());
+		assertEquals(Character.valueOf('8'), GlyphSet.DIGITS.glyphs().get(" _ |_||_|"));
+	}
+
+	@Test
+	public void testHex() throws Exception {
+		GlyphSet hex = GlyphSet.hex();
+		assertEquals(17, hex.size());
+		DigitDecoder decoder = new FSMBuilder().compile(hex);
+		assertEquals('A', decoder.decode(" _ ", "|_|", "| |", 0));
+		assertEquals('b', decoder.decode("   ", "|_ ", "|_|", 0));
+		assertEquals('-', decoder.decode("   ", " _ ", "   ", 0));
+		StringBuilder[] lines = {new StringBuilder(), new StringBuilder(), new StringBuilder()};
+		StringBuilder expected = new StringBuilder();
+		hex.glyphs().forEach((segments, glyph) -> {
+			for(int i = 0; i < lines.length; i++) {
+				lines[i].append(segments, i * 3, i * 3 + 3);
+			}
+			expected.append(glyph);
+		});
+		int[] codes = new int[hex.size()];
+		char[] glyphs = new char[hex.size()];
+		DigitDecoder.codesOf(lines[0].toString(), lines[1].toString(), lines[2].toString(), 3, codes);
+		decoder.valuesOf(codes, glyphs);
+		assertEquals(expected.toString(), new String(glyphs));
+		assertEquals("0123456789AbCdEF-", new String(glyphs));
+		//glyphs one character away are alternates of a digit along with digits.
+		String alternates = decoder.alternatesOf(DigitDecoder.codeOf(" _ ", "|_|", "|_|", 0));
+		assertTrue(alternates.contains("A"));
+		assertTrue(alternates.contains("9"));
+	}
+
+	@Test
+	public void testWith_sameGlyphDrawnTwice() throws Exception {
+		//a seven drawn with its top left segment.
+		GlyphSet glyphSet = GlyphSet.DIGITS.with('7', " _ | |  |");
+		DigitDecoder decoder = new FSMBuilder().compile(glyphSet);
+		assertEquals('7', decoder.decode(" _ ", "| |", "  |", 0));
+		assertEquals('7', decoder.decode(" _ ", "  |", "  |", 0));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testWith_drawingOfAnotherGlyph() throws Exception {
+		GlyphSet.DIGITS.with('O', " _ | ||_|");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testWith_illegalCharacters() throws Exception {
+		GlyphSet.DIGITS.with('X', " _ |x||_|");
+	}
+
+	@Test
+	public void testRead() throws Exception {
+		GlyphSet glyphSet = GlyphSet.read(new StringReader("# comment\n\nH \"   |_|| |\"\nL \"   |  |_ \"  \n"));
+		assertEquals(2, glyphSet.size());
+		assertEquals(Character.valueOf('H'), glyphSet.glyphs().get("   |_|| |"));
+		assertEquals(Character.valueOf('L'), glyphSet.glyphs().get("   |  |_ "));
+	}
+
+	@Test
+	public void testRead_invalidLine() throws Exception {
+		for(String line : new String[] {"H   |_|| |", "H \"   |_|\"", "H \"   |_|| |\" x", "HH \"   |_|| |\""}) {
+			try {
+				GlyphSet.read(new StringReader(line));
+				throw new AssertionError("Expected to fail for " + line);
+			} catch (IOException e) {
+				assertTrue(e.getMessage().startsWith("Invalid glyph at line 1"));
+			}
+		}
+	}
+}
@@ -0,0 +1,90 @@
+package com.sg.ocr.fsm;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class StateGraphTest {
+
+	private static char[] segmentsOf(int code) {
+		char[] segments = new char[DigitDecoder.SEGMENT_COUNT];
+		for(int i = segments.length - 1, c = code; i >= 0; i--, c /= DigitDecoder.SYMBOL_COUNT) {
+			segments[i] = DigitDecoder.SYMBOLS[c % DigitDecoder.SYMBOL_COUNT];
+		}
+		return segments;
+	}
+
+	@Test
+	public void testNext_matchesStateMachine() throws Exception {
+		FSMBuilder builder = new FSMBuilder();
+		SevenSegmentFSM sssm = builder.buildStateMachineForDigits();
+		StateGraph graph = builder.graphOf(sssm);
+		for(int code = 0; code < DigitDecoder.CODE_COUNT; code++) {
+			char[] segments = segmentsOf(code);
+			sssm.reset();
+			int state = StateGraph.INITIAL;
+			for(char segment : segments) {
+				sssm.nextState(segment);
+				state = graph.next(state, segment);
+			}
+			assertEquals(sssm.isError(), state == StateGraph.ERROR);
+			if(!sssm.isError()) {
+				assertEquals(sssm.getValue(), String.valueOf(graph.valueOf(state)));
+			}
+		}
+	}
+
+	@Test
+	public void testNextAlternate_matchesStateMachine() throws Exception {
+		FSMBuilder builder = new FSMBuilder();
+		SevenSegmentFSM sssm = builder.buildStateMachineForDigits();
+		StateGraph graph = builder.graphOf(sssm);
+		for(int code = 0; code < DigitDecoder.CODE_COUNT; code += 7) {
+			char[] segments = segmentsOf(code);
+			sssm.reset();
+			int state = StateGraph.INITIAL;
+			for(char segment : segments) {
+				SevenSegmentFSM alt = sssm.copy();
+				boolean moved = segment == ' ' ? alt.nextNonEmptyState() : alt.nextEmptyState();
+				int altState = graph.nextAlternate(state, segment);
+				assertEquals(moved, altState != StateGraph.ERROR);
+				sssm.nextState(segment);
+				state = graph.next(state, segment);
+			}
+		}
+	}
+
+	@Test
+	public void testNext_withIllegalCharacter() throws Exception {
+		StateGraph graph = new FSMBuilder().buildGraphForDigits();
+		assertEquals(StateGraph.ERROR, graph.next(StateGraph.INITIAL, '.'));
+		assertEquals(StateGraph.ERROR, graph.next(StateGraph.INITIAL, '?'));
+		assertEquals(StateGraph.ERROR, graph.next(StateGraph.ERROR, ' '));
+		assertEquals(StateGraph.ERROR, graph.nextAlternate(StateGraph.ERROR, ' '));
+	}
+
+	@Test
+	public void testWalk_fromManyThreads() throws Exception {
+		StateGraph graph = new FSMBuilder().buildGraphForDigits();
+		Thread[] threads = new Thread[4];
+		int[] decoded = new int[threads.length];
+		for(int t = 0; t < threads.length; t++) {
+			int index = t;
+			threads[t] = new Thread(() -> {
+				for(int digit = 0; digit < 10; digit++) {
+					int state = StateGraph.INITIAL;
+					for(char segment : FSMBuilder.getSegmentsForDigit(digit)) {
+						state = graph.next(state, segment);
+					}
+					if(graph.valueOf(state) == '0' + digit)
+						decoded[index]++;
+				}
+			});
+			threads[t].start();
+		}
+		for(int t = 0; t < threads.length; t++) {
+			threads[t].join();
+			assertEquals(10, decoded[t]);
+		}
+	}
+}
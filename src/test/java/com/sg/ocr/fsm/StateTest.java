@@ -64,6 +64,11 @@ public class StateTest {
 		assertNull(fromState.nextState('='));
 	}
 	
+	@Test(expected = IllegalArgumentException.class)
+	public void testAddStateTransform_withUnsupportedCharacter() throws Exception {
+		new State().addStateTransform('?');
+	}
+	
 	@Test
 	public void testSetValue() throws Exception {
 		State fromState = new State("0",false);